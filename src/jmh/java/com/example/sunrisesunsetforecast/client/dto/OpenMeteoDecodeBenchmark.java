@@ -0,0 +1,135 @@
+package com.example.sunrisesunsetforecast.client.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding an Open-Meteo forecast and reading the forecast day from it: the streaming column
+ * decoder against the former path, which bound the daily block to boxed lists and then parsed
+ * each timestamp string, trying the offset format first. Run with {@code -prof gc} to compare
+ * allocation per forecast.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenMeteoDecodeBenchmark {
+
+    /**
+     * The service asks for 2 days; 16 is the most Open-Meteo returns.
+     */
+    @Param({"2", "16"})
+    private int days;
+
+    private ObjectMapper objectMapper;
+    private byte[] body;
+    private LocalDate forecastDate;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        LocalDate today = LocalDate.of(2024, 6, 1);
+        forecastDate = today.plusDays(1);
+
+        StringBuilder time = new StringBuilder();
+        StringBuilder sunrise = new StringBuilder();
+        StringBuilder sunset = new StringBuilder();
+        StringBuilder temperature = new StringBuilder();
+        StringBuilder weatherCode = new StringBuilder();
+        for (int i = 0; i < days; i++) {
+            String separator = i == 0 ? "" : ",";
+            LocalDate date = today.plusDays(i);
+            time.append(separator).append('"').append(date).append('"');
+            sunrise.append(separator).append('"').append(date).append("T04:4").append(i % 10).append('"');
+            sunset.append(separator).append('"').append(date).append("T21:1").append(i % 10).append('"');
+            temperature.append(separator).append(String.format(Locale.ROOT, "%.1f", 18 + i * 0.7));
+            weatherCode.append(separator).append(i % 4);
+        }
+        String json = "{\"latitude\":51.5,\"longitude\":-0.120000124,\"generationtime_ms\":0.0629425048828125,"
+                + "\"utc_offset_seconds\":3600,\"timezone\":\"Europe/London\",\"timezone_abbreviation\":\"BST\","
+                + "\"elevation\":23.0,\"daily_units\":{\"time\":\"iso8601\",\"sunrise\":\"iso8601\","
+                + "\"sunset\":\"iso8601\",\"temperature_2m_max\":\"°C\",\"weathercode\":\"wmo code\"},"
+                + "\"daily\":{\"time\":[" + time + "],\"sunrise\":[" + sunrise + "],\"sunset\":[" + sunset
+                + "],\"temperature_2m_max\":[" + temperature + "],\"weathercode\":[" + weatherCode + "]}}";
+        body = json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void streamingColumns(Blackhole blackhole) throws Exception {
+        OpenMeteoResponse response = objectMapper.readValue(body, OpenMeteoResponse.class);
+        OpenMeteoResponse.Daily daily = response.getDaily();
+        long midnight = forecastDate.toEpochDay() * 86_400;
+        int index = 0;
+        for (int i = 0; i < daily.getTime().length; i++) {
+            if (daily.getTime()[i] == midnight) {
+                index = i;
+                break;
+            }
+        }
+        blackhole.consume(daily.getSunriseTimes()[index]);
+        blackhole.consume(daily.getSunsetTimes()[index]);
+        blackhole.consume(daily.getTemperature2mMax()[index]);
+        blackhole.consume(daily.getWeatherCode()[index]);
+    }
+
+    @Benchmark
+    public void databindLists(Blackhole blackhole) throws Exception {
+        ListResponse response = objectMapper.readValue(body, ListResponse.class);
+        ListResponse.Daily daily = response.daily;
+        int index = Math.max(0, daily.time.indexOf(forecastDate.toString()));
+        blackhole.consume(TimestampParseBenchmark.parseDateTime(daily.sunriseTimes.get(index)));
+        blackhole.consume(TimestampParseBenchmark.parseDateTime(daily.sunsetTimes.get(index)));
+        blackhole.consume(daily.temperature2mMax.get(index));
+        blackhole.consume(daily.weatherCode.get(index));
+    }
+
+    /**
+     * The list-based shape {@link OpenMeteoResponse} had before the column decoder.
+     */
+    public static class ListResponse {
+        public double latitude;
+        public double longitude;
+
+        @JsonProperty("utc_offset_seconds")
+        public Integer utcOffsetSeconds;
+
+        public Daily daily;
+
+        public static class Daily {
+            public List<String> time;
+
+            @JsonProperty("sunrise")
+            public List<String> sunriseTimes;
+
+            @JsonProperty("sunset")
+            public List<String> sunsetTimes;
+
+            @JsonProperty("temperature_2m_max")
+            public List<Double> temperature2mMax;
+
+            @JsonProperty("weathercode")
+            public List<Integer> weatherCode;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.sunrisesunsetforecast.client.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One Open-Meteo timestamp, read by the former {@code parseDateTime} in both formats it accepted,
+ * and by the column decoder that replaced it. The decoder figure includes reading a one-entry
+ * {@code daily} object around the timestamp, so it is an upper bound.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimestampParseBenchmark {
+
+    private static final String LOCAL = "2024-06-01T04:43";
+    private static final String OFFSET = "2024-06-01T04:43:00+01:00";
+
+    private ObjectReader dailyReader;
+    private byte[] daily;
+
+    @Setup
+    public void setUp() {
+        dailyReader = new ObjectMapper().readerFor(OpenMeteoResponse.Daily.class);
+        daily = ("{\"sunrise\":[\"" + LOCAL + "\"]}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The format Open-Meteo sends, which the former parser only reached after the offset format failed.
+     */
+    @Benchmark
+    public LocalDateTime formerParseLocal() {
+        return parseDateTime(LOCAL);
+    }
+
+    @Benchmark
+    public LocalDateTime formerParseOffset() {
+        return parseDateTime(OFFSET);
+    }
+
+    @Benchmark
+    public long columnDecoderLocal() throws Exception {
+        OpenMeteoResponse.Daily decoded = dailyReader.readValue(daily);
+        return decoded.getSunriseTimes()[0];
+    }
+
+    /**
+     * The timestamp parsing the assembler used before the column decoder.
+     */
+    static LocalDateTime parseDateTime(String dateTimeStr) {
+        try {
+            return OffsetDateTime.parse(dateTimeStr, DateTimeFormatter.ISO_OFFSET_DATE_TIME)
+                    .atZoneSameInstant(ZoneId.systemDefault())
+                    .toLocalDateTime();
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.parse(dateTimeStr, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        }
+    }
+}
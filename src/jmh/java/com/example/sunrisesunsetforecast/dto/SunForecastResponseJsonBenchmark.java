@@ -0,0 +1,66 @@
+package com.example.sunrisesunsetforecast.dto;
+
+import com.example.sunrisesunsetforecast.cache.ResponseBytesCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a {@link SunForecastResponse} as JSON: serializing it with Jackson, as every response
+ * did before {@link ResponseBytesCache}, against taking its encoded bytes (and gzip variant) from
+ * that cache, as a cache hit does now.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SunForecastResponseJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ResponseBytesCache responseBytesCache;
+    private SunForecastResponse forecast;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper().findAndRegisterModules();
+        responseBytesCache = new ResponseBytesCache(objectMapper, true, 1000);
+        forecast = SunForecastResponse.builder()
+                .city("London")
+                .sunrise(OffsetDateTime.parse("2024-06-02T04:42:00+01:00"))
+                .sunset(OffsetDateTime.parse("2024-06-02T21:15:00+01:00"))
+                .temperature(21.0)
+                .weatherCondition("Rain")
+                .enhancedMessage("Rain arrives in the afternoon; catch the sunrise at 04:42 while it is dry, "
+                        + "and expect a grey sunset at 21:15 with highs around 21°C.")
+                .build();
+        responseBytesCache.get(forecast).gzip();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(forecast);
+    }
+
+    @Benchmark
+    public byte[] cachedJson() {
+        return responseBytesCache.get(forecast).json();
+    }
+
+    @Benchmark
+    public byte[] cachedGzip() {
+        return responseBytesCache.get(forecast).gzip();
+    }
+}
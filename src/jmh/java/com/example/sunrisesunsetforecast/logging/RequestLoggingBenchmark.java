@@ -0,0 +1,176 @@
+package com.example.sunrisesunsetforecast.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import com.example.sunrisesunsetforecast.client.dto.OpenMeteoResponse;
+import com.example.sunrisesunsetforecast.model.Coordinates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The logging of one forecast request, on 8 request threads writing to one log file:
+ * <ul>
+ *     <li>{@code former}: the lines the pipeline used to log, 16 at INFO including the forecast's
+ *     {@code toString()} and its fields by reflection, through a synchronous file appender</li>
+ *     <li>{@code current}: the DEBUG diagnostics of a 1% sample of requests and the summary line,
+ *     through the asynchronous appender and {@link DiagnosticSamplingFilter}, as configured in
+ *     {@code logback-spring.xml}</li>
+ * </ul>
+ * The asynchronous appender drops INFO lines rather than block once its queue is 80% full, so when
+ * the disk cannot keep up this measures the cost to the request threads, not the lines written.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class RequestLoggingBenchmark {
+
+    private static final String PATTERN = "%d{yyyy-MM-dd HH:mm:ss} [%thread] %-5level %logger{36} %X{requestId:-} - %msg %kvp{NONE}%n";
+    private static final String CITY = "London";
+    private static final double SAMPLE_RATE = 0.01;
+
+    private Path directory;
+    private LoggerContext formerContext;
+    private LoggerContext currentContext;
+    private Logger formerLog;
+    private Logger currentLog;
+    private Coordinates coords;
+    private OpenMeteoResponse forecast;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("logging-benchmark");
+        coords = new Coordinates(51.5074, -0.1278);
+        forecast = new OpenMeteoResponse();
+        forecast.setLatitude(51.5);
+        forecast.setLongitude(-0.12);
+        OpenMeteoResponse.Daily daily = new OpenMeteoResponse.Daily();
+        daily.setTime(new long[]{1717200000L, 1717286400L});
+        daily.setSunriseTimes(new long[]{1717216980L, 1717303320L});
+        daily.setSunsetTimes(new long[]{1717276440L, 1717362900L});
+        daily.setTemperature2mMax(new double[]{19.5, 21.0});
+        daily.setWeatherCode(new int[]{3, 61});
+        forecast.setDaily(daily);
+
+        // Standalone contexts, reading the MDC that request threads write to
+        formerContext = new LoggerContext();
+        formerContext.setMDCAdapter(MDC.getMDCAdapter());
+        formerContext.start();
+        formerLog = formerContext.getLogger("com.example.sunrisesunsetforecast.service.impl.SunForecastServiceImpl");
+        formerLog.setLevel(Level.DEBUG);
+        formerLog.addAppender(fileAppender(formerContext, "former.log"));
+
+        currentContext = new LoggerContext();
+        currentContext.setMDCAdapter(MDC.getMDCAdapter());
+        DiagnosticSamplingFilter samplingFilter = new DiagnosticSamplingFilter();
+        samplingFilter.setContext(currentContext);
+        samplingFilter.start();
+        currentContext.addTurboFilter(samplingFilter);
+        currentContext.start();
+        AsyncAppender async = new AsyncAppender();
+        async.setContext(currentContext);
+        async.setQueueSize(8192);
+        async.setNeverBlock(true);
+        async.addAppender(fileAppender(currentContext, "current.log"));
+        async.start();
+        currentLog = currentContext.getLogger("com.example.sunrisesunsetforecast.service.impl.SunForecastServiceImpl");
+        currentLog.setLevel(Level.DEBUG);
+        currentLog.addAppender(async);
+    }
+
+    private Appender<ILoggingEvent> fileAppender(LoggerContext context, String name) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+        FileAppender<ILoggingEvent> appender = new FileAppender<>();
+        appender.setContext(context);
+        appender.setFile(directory.resolve(name).toString());
+        appender.setEncoder(encoder);
+        appender.start();
+        return appender;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        formerContext.stop();
+        currentContext.stop();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void former() {
+        OpenMeteoResponse.Daily daily = forecast.getDaily();
+        formerLog.info("Fetching sun forecast for city: {}", CITY);
+        formerLog.info("1. About to call OpenMeteoClient.getSunForecast for city: {}", CITY);
+        formerLog.info("1.1. OpenMeteoClient class: {}", getClass().getName());
+        formerLog.info("1.2. Got coordinates for {}: {},{}", CITY, coords.getLatitude(), coords.getLongitude());
+        formerLog.info("2. Received forecast object: {}", "not null");
+        formerLog.info("4. Forecast class: {}", forecast.getClass().getName());
+        formerLog.info("5. Forecast toString(): {}", forecast);
+        formerLog.info("6. Forecast latitude: {}, longitude: {}", forecast.getLatitude(), forecast.getLongitude());
+        formerLog.info("7. Daily object: {}", "not null");
+        formerLog.info("10. Daily object class: {}", daily.getClass().getName());
+        formerLog.info("11. Daily object fields: {}", Arrays.toString(daily.getClass().getDeclaredFields()));
+        formerLog.info("12. Time list: {}", daily.getTime());
+        formerLog.info("13. Sunrise times: {}", daily.getSunriseTimes());
+        formerLog.info("14. Sunset times: {}", daily.getSunsetTimes());
+        formerLog.info("15. Temperature max: {}", daily.getTemperature2mMax());
+        formerLog.info("16. Weather codes: {}", daily.getWeatherCode());
+    }
+
+    @Benchmark
+    public void current() {
+        String requestId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        MDC.put(RequestSummaryFilter.REQUEST_ID, requestId);
+        MDC.put(RequestSummaryFilter.SAMPLED, Boolean.toString(ThreadLocalRandom.current().nextDouble() < SAMPLE_RATE));
+        try {
+            currentLog.debug("Fetching sun forecast for city: {}", CITY);
+            currentLog.debug("Coordinates for {}: {},{}; weather {}", CITY, coords.getLatitude(), coords.getLongitude(),
+                    forecast != null ? "available" : "unavailable");
+        } finally {
+            MDC.remove(RequestSummaryFilter.REQUEST_ID);
+            MDC.remove(RequestSummaryFilter.SAMPLED);
+        }
+        currentLog.atInfo()
+                .addKeyValue("method", "GET")
+                .addKeyValue("path", "/api/sun-forecast")
+                .addKeyValue("city", CITY)
+                .addKeyValue("status", 200)
+                .addKeyValue("durationMs", 12L)
+                .addKeyValue(RequestSummaryFilter.REQUEST_ID, requestId)
+                .log("Request completed");
+    }
+}
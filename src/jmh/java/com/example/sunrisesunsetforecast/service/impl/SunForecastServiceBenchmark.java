@@ -0,0 +1,182 @@
+package com.example.sunrisesunsetforecast.service.impl;
+
+import com.example.sunrisesunsetforecast.cache.CacheRefreshRegistry;
+import com.example.sunrisesunsetforecast.cache.SingleFlight;
+import com.example.sunrisesunsetforecast.client.OpenMeteoClient;
+import com.example.sunrisesunsetforecast.client.dto.OpenMeteoResponse;
+import com.example.sunrisesunsetforecast.config.ResilienceProperties;
+import com.example.sunrisesunsetforecast.dto.SunForecastResponse;
+import com.example.sunrisesunsetforecast.model.Coordinates;
+import com.example.sunrisesunsetforecast.resilience.UpstreamGuards;
+import com.example.sunrisesunsetforecast.service.ForecastDescriptionService;
+import com.example.sunrisesunsetforecast.service.GeocodingService;
+import com.example.sunrisesunsetforecast.service.SunForecastService;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.Advised;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SunForecastServiceImpl#getSunForecast} with the upstreams stubbed out, through the Spring
+ * cache proxy as in the application:
+ * <ul>
+ *     <li>{@code cacheHit}: the forecast is cached, the common case</li>
+ *     <li>{@code cacheMiss}: the forecast is evicted first, so the whole pipeline runs (geocoding and
+ *     weather stubs, sun times, assembling, description cache hit) and its result is cached</li>
+ *     <li>{@code uncached}: the pipeline called on the target, without the cache proxy</li>
+ * </ul>
+ * The stubs answer at once, so this measures our own CPU and allocation per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SunForecastServiceBenchmark {
+
+    private static final String CITY = "London";
+
+    private AnnotationConfigApplicationContext context;
+    private SunForecastService proxy;
+    private SunForecastService target;
+    private Cache forecastCache;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = new AnnotationConfigApplicationContext(StubbedUpstreams.class);
+        proxy = context.getBean(SunForecastService.class);
+        target = (SunForecastService) ((Advised) proxy).getTargetSource().getTarget();
+        forecastCache = context.getBean(CacheManager.class).getCache("sunForecast");
+        proxy.getSunForecast(CITY);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public SunForecastResponse cacheHit() {
+        return proxy.getSunForecast(CITY);
+    }
+
+    @Benchmark
+    public SunForecastResponse cacheMiss() {
+        forecastCache.evict(CITY.toLowerCase());
+        return proxy.getSunForecast(CITY);
+    }
+
+    @Benchmark
+    public SunForecastResponse uncached() {
+        return target.getSunForecast(CITY);
+    }
+
+    @Configuration
+    @EnableCaching
+    static class StubbedUpstreams {
+
+        @Bean
+        CacheManager cacheManager() {
+            CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+            for (String name : List.of("sunForecast", "forecastDescriptions")) {
+                cacheManager.registerCustomCache(name, Caffeine.newBuilder()
+                        .recordStats()
+                        .maximumSize(1000)
+                        .expireAfterWrite(Duration.ofHours(1))
+                        .build());
+            }
+            return cacheManager;
+        }
+
+        @Bean
+        SunForecastService sunForecastService(CacheManager cacheManager) throws Exception {
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            ObservationRegistry observationRegistry = ObservationRegistry.create();
+            observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+            OpenMeteoResponse weather = weather();
+            OpenMeteoClient openMeteoClient = new OpenMeteoClient(null, null, null, null, null) {
+                @Override
+                public OpenMeteoResponse getSunForecast(String city) {
+                    return weather;
+                }
+            };
+            Coordinates london = new Coordinates(51.5074, -0.1278);
+            GeocodingService geocodingService = city -> london;
+            FixedChatModel chatModel = new FixedChatModel();
+            ForecastDescriptionService descriptionService = new ForecastDescriptionService(
+                    chatModel, chatModel, null, cacheManager, new ObjectMapper(), Runnable::run,
+                    new UpstreamGuards(new ResilienceProperties(), meterRegistry, observationRegistry));
+            SunForecastAssembler assembler = new SunForecastAssembler(new NoaaSunTimesCalculator(), descriptionService);
+            return new SunForecastServiceImpl(openMeteoClient, cacheManager, geocodingService, assembler,
+                    new SingleFlight(meterRegistry), new CacheRefreshRegistry(), new ForecastStageTimers(observationRegistry));
+        }
+
+        /**
+         * Tomorrow's weather, decoded from an Open-Meteo response as the client would.
+         */
+        private static OpenMeteoResponse weather() throws Exception {
+            LocalDate today = LocalDate.now();
+            LocalDate tomorrow = today.plusDays(1);
+            String json = "{\"latitude\":51.5,\"longitude\":-0.12,\"utc_offset_seconds\":3600,\"daily\":{"
+                    + "\"time\":[\"" + today + "\",\"" + tomorrow + "\"],"
+                    + "\"sunrise\":[\"" + today + "T04:43\",\"" + tomorrow + "T04:42\"],"
+                    + "\"sunset\":[\"" + today + "T21:14\",\"" + tomorrow + "T21:15\"],"
+                    + "\"temperature_2m_max\":[19.4,21.0],\"weathercode\":[3,61]}}";
+            return new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                    .readValue(json, OpenMeteoResponse.class);
+        }
+    }
+
+    /**
+     * Answers every prompt at once with the same message.
+     */
+    static class FixedChatModel implements ChatLanguageModel {
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            return Response.from(AiMessage.from("Rain arrives in the afternoon; catch the sunrise at 04:42 while it is dry."));
+        }
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+            return generate(messages);
+        }
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+            return generate(messages);
+        }
+    }
+}
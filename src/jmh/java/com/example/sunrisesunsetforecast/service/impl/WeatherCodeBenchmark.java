@@ -0,0 +1,39 @@
+package com.example.sunrisesunsetforecast.service.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SunForecastAssembler#mapWeatherCode} over every WMO code Open-Meteo reports, plus an
+ * unknown one, in turn so that the switch cannot be folded to a single branch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeatherCodeBenchmark {
+
+    private static final int[] CODES = {
+            0, 1, 2, 3, 45, 48, 51, 53, 55, 56, 57, 61, 63, 65, 66, 67,
+            71, 73, 75, 77, 80, 81, 82, 85, 86, 95, 96, 99, 42};
+
+    private int next;
+
+    @Benchmark
+    public String mapWeatherCode() {
+        int code = CODES[next];
+        next = next + 1 == CODES.length ? 0 : next + 1;
+        return SunForecastAssembler.mapWeatherCode(code);
+    }
+}
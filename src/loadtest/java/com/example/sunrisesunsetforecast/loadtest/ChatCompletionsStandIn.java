@@ -0,0 +1,98 @@
+package com.example.sunrisesunsetforecast.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Answers {@code POST /v1/chat/completions} like an OpenAI-compatible endpoint. Batch prompts,
+ * which ask for a JSON array of a given number of strings, get such an array; other prompts get
+ * one message. Streaming requests get the message as server-sent chunks, all sent once the
+ * profile's latency has passed.
+ */
+public class ChatCompletionsStandIn extends StandInServer {
+
+    private static final Pattern BATCH_SIZE = Pattern.compile("JSON array of (\\d+) strings");
+    private static final String MESSAGE = "A calm day with clear skies for most of it. "
+            + "Set an alarm for the sunrise and take a walk while the air is still cool.";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong ids = new AtomicLong();
+
+    public ChatCompletionsStandIn(FaultProfile profile) {
+        super("chat", "/v1", profile);
+    }
+
+    @Override
+    protected Response respond(Request request) throws IOException {
+        if (!request.uri().getPath().endsWith("/chat/completions") || !"POST".equals(request.method())) {
+            return Response.json(404, "{\"error\":{\"message\":\"Not found\"}}");
+        }
+        JsonNode body = objectMapper.readTree(request.body());
+        JsonNode messages = body.path("messages");
+        String prompt = messages.isEmpty() ? "" : messages.get(messages.size() - 1).path("content").asText();
+        String model = body.path("model").asText("stand-in");
+        String id = "chatcmpl-" + ids.incrementAndGet();
+
+        String content = MESSAGE;
+        Matcher batch = BATCH_SIZE.matcher(prompt);
+        if (batch.find()) {
+            ArrayNode texts = objectMapper.createArrayNode();
+            for (int i = 0; i < Integer.parseInt(batch.group(1)); i++) {
+                texts.add(MESSAGE);
+            }
+            content = objectMapper.writeValueAsString(texts);
+        }
+        int promptTokens = prompt.length() / 4;
+        int completionTokens = content.length() / 4;
+
+        if (body.path("stream").asBoolean()) {
+            StringBuilder events = new StringBuilder();
+            for (String word : content.split("(?<= )")) {
+                events.append("data: ").append(objectMapper.writeValueAsString(chunk(id, model, word, null))).append("\n\n");
+            }
+            events.append("data: ").append(objectMapper.writeValueAsString(chunk(id, model, null, "stop"))).append("\n\n");
+            events.append("data: [DONE]\n\n");
+            return new Response(200, "text/event-stream", events.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        ObjectNode completion = envelope(id, "chat.completion", model);
+        ObjectNode choice = completion.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.putObject("message").put("role", "assistant").put("content", content);
+        choice.put("finish_reason", "stop");
+        completion.putObject("usage")
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens);
+        return Response.json(200, objectMapper.writeValueAsString(completion));
+    }
+
+    private ObjectNode chunk(String id, String model, String content, String finishReason) {
+        ObjectNode chunk = envelope(id, "chat.completion.chunk", model);
+        ObjectNode choice = chunk.putArray("choices").addObject();
+        choice.put("index", 0);
+        ObjectNode delta = choice.putObject("delta");
+        if (content != null) {
+            delta.put("content", content);
+        }
+        choice.put("finish_reason", finishReason);
+        return chunk;
+    }
+
+    private ObjectNode envelope(String id, String object, String model) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("id", id);
+        node.put("object", object);
+        node.put("created", (int) (System.currentTimeMillis() / 1000));
+        node.put("model", model);
+        return node;
+    }
+}
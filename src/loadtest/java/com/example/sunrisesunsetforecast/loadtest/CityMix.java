@@ -0,0 +1,59 @@
+package com.example.sunrisesunsetforecast.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The cities requested during a run: a fixed set of made-up names, drawn with Zipf-distributed
+ * popularity, so a few cities get most of the traffic and the rest make up a long tail of cache
+ * misses, as real traffic does. An exponent of 0 makes every city equally likely.
+ */
+public class CityMix {
+
+    private static final String[] SYLLABLES = {"ba", "ce", "di", "fo", "gu", "ha", "ke", "li", "mo", "nu",
+            "pa", "re", "si", "to", "vu", "wa", "ze", "bro", "sta", "len"};
+
+    private final String[] names;
+    private final double[] cumulative;
+
+    public CityMix(int cities, double exponent) {
+        if (cities < 1 || exponent < 0) {
+            throw new IllegalArgumentException("Need at least one city and a non-negative exponent");
+        }
+        names = new String[cities];
+        cumulative = new double[cities];
+        double total = 0;
+        for (int rank = 0; rank < cities; rank++) {
+            names[rank] = name(rank);
+            total += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < cities; rank++) {
+            cumulative[rank] /= total;
+        }
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String next() {
+        int index = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+        return names[Math.min(names.length - 1, index < 0 ? -index - 1 : index)];
+    }
+
+    /**
+     * A distinct, pronounceable name of letters only, as the API accepts, e.g. "Bafo", "Cepa".
+     */
+    static String name(int rank) {
+        StringBuilder name = new StringBuilder();
+        int rest = rank;
+        do {
+            name.append(SYLLABLES[rest % SYLLABLES.length]);
+            rest /= SYLLABLES.length;
+        } while (rest > 0);
+        name.append(SYLLABLES[(rank * 7 + 3) % SYLLABLES.length]);
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+}
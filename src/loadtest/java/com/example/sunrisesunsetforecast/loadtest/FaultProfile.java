@@ -0,0 +1,76 @@
+package com.example.sunrisesunsetforecast.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How a stand-in upstream misbehaves: how long it takes to answer, how often it fails, and how many
+ * requests per second it accepts before answering {@code 429 Too Many Requests}, as the real services
+ * do when a client exceeds their usage policy.
+ */
+public class FaultProfile {
+
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final double permitsPerSecond;
+    private final double burst;
+
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * @param errorRate        fraction of accepted requests answered with {@code 503}, from 0 to 1
+     * @param permitsPerSecond requests accepted per second, or 0 for no limit
+     * @param burst            requests accepted back to back before the limit applies
+     */
+    public FaultProfile(LatencyDistribution latency, double errorRate, double permitsPerSecond, int burst) {
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("Error rate must be between 0 and 1: " + errorRate);
+        }
+        if (permitsPerSecond < 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate limit needs permits-per-second >= 0 and burst >= 1");
+        }
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilledAt = System.nanoTime();
+    }
+
+    public LatencyDistribution latency() {
+        return latency;
+    }
+
+    /**
+     * Decides the fate of one request. Throttled requests do not count towards the error rate.
+     */
+    public Outcome next() {
+        if (permitsPerSecond > 0 && !tryAcquire()) {
+            return Outcome.THROTTLED;
+        }
+        return ThreadLocalRandom.current().nextDouble() < errorRate ? Outcome.ERROR : Outcome.OK;
+    }
+
+    private synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * permitsPerSecond / 1e9);
+        refilledAt = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "latency " + latency + ", error rate " + errorRate
+                + (permitsPerSecond > 0 ? ", " + permitsPerSecond + " req/s (burst " + (int) burst + ")" : ", no rate limit");
+    }
+
+    public enum Outcome {
+        OK,
+        ERROR,
+        THROTTLED
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.sunrisesunsetforecast.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Response time of a stand-in upstream, written as:
+ * <ul>
+ *     <li>{@code fixed:40ms}: always the same</li>
+ *     <li>{@code uniform:20ms..200ms}: evenly spread between the two bounds</li>
+ *     <li>{@code lognormal:120ms,900ms}: log-normal with the given median and 99th percentile, the
+ *     usual shape of a remote service's latency, with a long tail</li>
+ * </ul>
+ * Durations take the same forms as in {@code application.yml}.
+ */
+public abstract class LatencyDistribution {
+
+    /**
+     * The 99th percentile of the standard normal distribution.
+     */
+    private static final double Z_99 = 2.3263478740408408;
+
+    private final String spec;
+
+    private LatencyDistribution(String spec) {
+        this.spec = spec;
+    }
+
+    /**
+     * @return a response time in nanoseconds
+     */
+    public abstract long sampleNanos();
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    public static LatencyDistribution parse(String spec) {
+        int colon = spec.indexOf(':');
+        String kind = colon < 0 ? "fixed" : spec.substring(0, colon).trim();
+        String args = spec.substring(colon + 1).trim();
+        return switch (kind) {
+            case "fixed" -> fixed(spec, duration(args));
+            case "uniform" -> {
+                String[] bounds = split(spec, args, "..");
+                yield uniform(spec, duration(bounds[0]), duration(bounds[1]));
+            }
+            case "lognormal" -> {
+                String[] percentiles = split(spec, args, ",");
+                yield logNormal(spec, duration(percentiles[0]), duration(percentiles[1]));
+            }
+            default -> throw new IllegalArgumentException("Unknown latency distribution '" + kind + "' in " + spec);
+        };
+    }
+
+    private static LatencyDistribution fixed(String spec, long nanos) {
+        return new LatencyDistribution(spec) {
+            @Override
+            public long sampleNanos() {
+                return nanos;
+            }
+        };
+    }
+
+    private static LatencyDistribution uniform(String spec, long min, long max) {
+        if (max < min) {
+            throw new IllegalArgumentException("Upper bound is below the lower bound in " + spec);
+        }
+        return new LatencyDistribution(spec) {
+            @Override
+            public long sampleNanos() {
+                return min == max ? min : ThreadLocalRandom.current().nextLong(min, max + 1);
+            }
+        };
+    }
+
+    private static LatencyDistribution logNormal(String spec, long median, long p99) {
+        if (median <= 0 || p99 < median) {
+            throw new IllegalArgumentException("Need 0 < median <= p99 in " + spec);
+        }
+        double mu = Math.log(median);
+        double sigma = Math.log((double) p99 / median) / Z_99;
+        return new LatencyDistribution(spec) {
+            @Override
+            public long sampleNanos() {
+                return (long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian());
+            }
+        };
+    }
+
+    private static String[] split(String spec, String args, String separator) {
+        int at = args.indexOf(separator);
+        if (at < 0) {
+            throw new IllegalArgumentException("Expected two values separated by '" + separator + "' in " + spec);
+        }
+        return new String[]{args.substring(0, at).trim(), args.substring(at + separator.length()).trim()};
+    }
+
+    private static long duration(String value) {
+        Duration duration = DurationStyle.detectAndParse(value);
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("Negative latency: " + value);
+        }
+        return duration.toNanos();
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.sunrisesunsetforecast.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends forecast requests to the application and records their latency in HDR histograms.
+ * <p>
+ * With a {@code rate}, the load is open: requests are started on a fixed schedule whatever the
+ * application's response times, and each latency is measured from when the request was due, so a
+ * stall shows in the percentiles rather than just slowing the driver down (coordinated omission).
+ * At most {@code concurrency} requests are in flight; a request due while the limit is reached
+ * waits, and that wait counts towards its latency. Without a rate, the load is closed:
+ * {@code concurrency} clients each send a request as soon as the previous one is answered.
+ * <p>
+ * Every second, one line reports the responses and latency of that second, warm-up seconds marked
+ * {@code w}. The totals cover the requests started after the warm-up and before the end of the run.
+ */
+public class LoadDriver {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final long MAX_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(5);
+    /**
+     * Status recorded for requests that got no response: connection failures and timeouts.
+     */
+    private static final int NO_RESPONSE = 0;
+
+    private final Settings settings;
+    private final PrintStream out;
+    private final HttpClient client;
+    private final ExecutorService clientExecutor;
+    private final Recorder perSecond = new Recorder(MAX_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    private final Recorder measured = new Recorder(MAX_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    private volatile boolean finished;
+    private long measureFrom;
+    private long end;
+
+    public LoadDriver(Settings settings, PrintStream out) {
+        this.settings = settings;
+        this.out = out;
+        this.clientExecutor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(clientExecutor)
+                .build();
+    }
+
+    public Result run() throws InterruptedException {
+        long start = System.nanoTime();
+        measureFrom = start + settings.warmup().toNanos();
+        end = measureFrom + settings.duration().toNanos();
+
+        Thread reporter = new Thread(() -> report(start), "load-reporter");
+        reporter.start();
+        try {
+            if (settings.rate() > 0) {
+                runOpen(start);
+            } else {
+                runClosed();
+            }
+        } finally {
+            finished = true;
+            reporter.join();
+            clientExecutor.shutdownNow();
+        }
+        Map<Integer, Long> counts = new TreeMap<>();
+        statuses.forEach((status, count) -> counts.put(status, count.sum()));
+        return new Result(measured.getIntervalHistogram(), settings.duration(), counts);
+    }
+
+    private void runOpen(long start) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(settings.concurrency());
+        double intervalNanos = 1e9 / settings.rate();
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * intervalNanos);
+            if (due - end >= 0) {
+                break;
+            }
+            sleepUntil(due);
+            inFlight.acquire();
+            client.sendAsync(request(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        inFlight.release();
+                        record(due, response, failure);
+                    });
+        }
+        // Let the requests still in flight finish, or time out
+        inFlight.tryAcquire(settings.concurrency(), settings.timeout().toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private void runClosed() throws InterruptedException {
+        Thread[] clients = new Thread[settings.concurrency()];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = new Thread(() -> {
+                while (System.nanoTime() - end < 0) {
+                    long sent = System.nanoTime();
+                    try {
+                        record(sent, client.send(request(), HttpResponse.BodyHandlers.discarding()), null);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        record(sent, null, e);
+                    }
+                }
+            }, "load-client-" + i);
+            clients[i].start();
+        }
+        for (Thread thread : clients) {
+            thread.join();
+        }
+    }
+
+    private HttpRequest request() {
+        String city = URLEncoder.encode(settings.cities().next(), StandardCharsets.UTF_8);
+        return HttpRequest.newBuilder(settings.target().resolve(settings.path() + "?city=" + city))
+                .timeout(settings.timeout())
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+    }
+
+    private void record(long startedAt, HttpResponse<?> response, Throwable failure) {
+        long latency = Math.min(MAX_TRACKABLE_NANOS, System.nanoTime() - startedAt);
+        perSecond.recordValue(latency);
+        if (startedAt - measureFrom >= 0 && startedAt - end < 0) {
+            measured.recordValue(latency);
+            int status = failure != null || response == null ? NO_RESPONSE : response.statusCode();
+            statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+        }
+    }
+
+    private void report(long start) {
+        out.printf("%8s %8s %10s %10s %10s %10s%n", "time", "resp/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram interval = null;
+        long next = start;
+        // Runs until the last requests completed or timed out
+        while (!finished) {
+            next += TimeUnit.SECONDS.toNanos(1);
+            sleepUntil(next);
+            interval = perSecond.getIntervalHistogram(interval);
+            out.printf("%7ds%s %8d %10.1f %10.1f %10.1f %10.1f%n",
+                    TimeUnit.NANOSECONDS.toSeconds(next - start), next - measureFrom > 0 ? " " : "w",
+                    interval.getTotalCount(), millis(interval.getValueAtPercentile(50)),
+                    millis(interval.getValueAtPercentile(99)), millis(interval.getValueAtPercentile(99.9)),
+                    millis(interval.getMaxValue()));
+        }
+    }
+
+    private static void sleepUntil(long deadline) {
+        for (long wait = deadline - System.nanoTime(); wait > 0; wait = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * @param target      the application's base URL
+     * @param path        the endpoint, called with {@code ?city=}
+     * @param rate        requests started per second, or 0 for a closed load
+     * @param concurrency the most requests in flight (open load) or the number of clients (closed load)
+     */
+    public record Settings(URI target, String path, double rate, int concurrency, Duration warmup,
+                           Duration duration, Duration timeout, CityMix cities) {
+    }
+
+    /**
+     * @param latency  response times in nanoseconds, after the warm-up
+     * @param statuses responses by HTTP status after the warm-up, 0 for requests that got no response
+     */
+    public record Result(Histogram latency, Duration duration, Map<Integer, Long> statuses) {
+
+        public double throughput() {
+            return latency.getTotalCount() / (duration.toNanos() / 1e9);
+        }
+
+        public void print(PrintStream out) {
+            out.printf("%nRequests   %d in %d s: %.1f req/s%n", latency.getTotalCount(), duration.toSeconds(), throughput());
+            StringBuilder responses = new StringBuilder();
+            statuses.forEach((status, count) -> responses.append(responses.isEmpty() ? "" : ", ")
+                    .append(status == NO_RESPONSE ? "no response" : status).append(": ").append(count));
+            out.printf("Responses  %s%n", responses);
+            out.printf("Latency    mean %.1f ms, p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, p99.99 %.1f, max %.1f ms%n%n",
+                    latency.getMean() / 1e6, millis(latency.getValueAtPercentile(50)),
+                    millis(latency.getValueAtPercentile(90)), millis(latency.getValueAtPercentile(99)),
+                    millis(latency.getValueAtPercentile(99.9)), millis(latency.getValueAtPercentile(99.99)),
+                    millis(latency.getMaxValue()));
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.sunrisesunsetforecast.loadtest;
+
+import com.example.sunrisesunsetforecast.SunriseSunsetForecastApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load-tests the whole application offline: starts local stand-ins for Nominatim, Open-Meteo and
+ * the chat model, starts the application against them, drives forecast requests at it and prints
+ * the latency distribution and throughput.
+ * <p>
+ * Options are given as {@code --name=value}. Those below configure the run; any other is passed to
+ * the application as a property, e.g. {@code --forecast.description.latency-budget=0}.
+ * <ul>
+ *     <li>{@code rate}: requests per second, or 0 for a closed load (default 50)</li>
+ *     <li>{@code concurrency}: the most requests in flight, or clients of a closed load (default 200)</li>
+ *     <li>{@code warmup}, {@code duration}: how long to warm up, then measure (default 10s, 60s)</li>
+ *     <li>{@code timeout}: per request (default 30s)</li>
+ *     <li>{@code cities}, {@code zipf}: how many distinct cities, and the Zipf exponent of their
+ *     popularity (default 1000, 1.0)</li>
+ *     <li>{@code path}: the endpoint (default {@code /api/sun-forecast})</li>
+ *     <li>{@code histogram-file}: where to write the full percentile distribution, readable by the
+ *     HdrHistogram plotter (default {@code target/loadtest/latency.hgrm})</li>
+ *     <li>{@code <upstream>.latency}, {@code <upstream>.error-rate}, {@code <upstream>.rate-limit},
+ *     {@code <upstream>.burst}: the {@link FaultProfile} of each stand-in, where upstream is
+ *     {@code nominatim}, {@code open-meteo} or {@code chat}; the latency takes the forms of
+ *     {@link LatencyDistribution}</li>
+ * </ul>
+ * The stand-in defaults are rough figures for the public services: Nominatim allows about a
+ * request per second, Open-Meteo's free tier 600 per minute, and a free chat model takes seconds.
+ */
+public final class LoadTest {
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("rate", "50"),
+            Map.entry("concurrency", "200"),
+            Map.entry("warmup", "10s"),
+            Map.entry("duration", "60s"),
+            Map.entry("timeout", "30s"),
+            Map.entry("cities", "1000"),
+            Map.entry("zipf", "1.0"),
+            Map.entry("path", "/api/sun-forecast"),
+            Map.entry("histogram-file", "target/loadtest/latency.hgrm"),
+            Map.entry("nominatim.latency", "lognormal:250ms,1500ms"),
+            Map.entry("nominatim.error-rate", "0.005"),
+            Map.entry("nominatim.rate-limit", "1"),
+            Map.entry("nominatim.burst", "3"),
+            Map.entry("open-meteo.latency", "lognormal:60ms,400ms"),
+            Map.entry("open-meteo.error-rate", "0.002"),
+            Map.entry("open-meteo.rate-limit", "10"),
+            Map.entry("open-meteo.burst", "20"),
+            Map.entry("chat.latency", "lognormal:1500ms,8s"),
+            Map.entry("chat.error-rate", "0.01"),
+            Map.entry("chat.rate-limit", "0"),
+            Map.entry("chat.burst", "1"));
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        Map<String, String> appProperties = new LinkedHashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            String name = arg.substring(2, equals);
+            (DEFAULTS.containsKey(name) ? options : appProperties).put(name, arg.substring(equals + 1));
+        }
+
+        PrintStream out = System.out;
+        try (StandInServer nominatim = new NominatimStandIn(profile(options, "nominatim"));
+             StandInServer openMeteo = new OpenMeteoStandIn(profile(options, "open-meteo"));
+             StandInServer chat = new ChatCompletionsStandIn(profile(options, "chat"))) {
+            nominatim.start();
+            openMeteo.start();
+            chat.start();
+
+            Map<String, String> properties = new LinkedHashMap<>();
+            properties.put("server.port", "0");
+            properties.put("geocoding.api.base-url", nominatim.baseUrl());
+            properties.put("openmeteo.api.base-url", openMeteo.baseUrl() + "/v1/forecast");
+            properties.put("openrouter.api.base-url", chat.baseUrl() + "/v1");
+            properties.put("openrouter.api.key", "stand-in");
+            // Leave the persisted caches and the gazetteer of a local installation alone
+            properties.put("forecast.cache.persistence.enabled", "false");
+            properties.put("geocoding.gazetteer.enabled", "false");
+            // The application logs to a file only, so the console is left to the report
+            properties.put("logging.level.root", "WARN");
+            properties.put("logging.level.com.example.sunrisesunsetforecast", "WARN");
+            properties.put("logging.file.name", "target/loadtest/application.log");
+            properties.put("logging.threshold.console", "OFF");
+            properties.put("spring.main.banner-mode", "off");
+            properties.putAll(appProperties);
+
+            List<String> commandLine = new ArrayList<>();
+            properties.forEach((name, value) -> commandLine.add("--" + name + "=" + value));
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SunriseSunsetForecastApplication.class)
+                    .run(commandLine.toArray(String[]::new))) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                LoadDriver.Settings settings = new LoadDriver.Settings(
+                        URI.create("http://127.0.0.1:" + port),
+                        options.get("path"),
+                        Double.parseDouble(options.get("rate")),
+                        Integer.parseInt(options.get("concurrency")),
+                        duration(options, "warmup"),
+                        duration(options, "duration"),
+                        duration(options, "timeout"),
+                        new CityMix(Integer.parseInt(options.get("cities")), Double.parseDouble(options.get("zipf"))));
+
+                out.printf("%nLoad: %s, %s warm-up + %s against %s over %d cities (Zipf %s)%n",
+                        settings.rate() > 0 ? settings.rate() + " req/s, at most " + settings.concurrency() + " in flight"
+                                : settings.concurrency() + " closed-loop clients",
+                        settings.warmup(), settings.duration(), settings.path(), settings.cities().size(), options.get("zipf"));
+                if (!appProperties.isEmpty()) {
+                    out.println("Application overrides: " + appProperties);
+                }
+                out.println();
+
+                LoadDriver.Result result = new LoadDriver(settings, out).run();
+                result.print(out);
+                for (StandInServer standIn : List.of(nominatim, openMeteo, chat)) {
+                    out.println(standIn.stats());
+                }
+                writeHistogram(result, Path.of(options.get("histogram-file")), out);
+            }
+        }
+    }
+
+    private static FaultProfile profile(Map<String, String> options, String upstream) {
+        return new FaultProfile(
+                LatencyDistribution.parse(options.get(upstream + ".latency")),
+                Double.parseDouble(options.get(upstream + ".error-rate")),
+                Double.parseDouble(options.get(upstream + ".rate-limit")),
+                Integer.parseInt(options.get(upstream + ".burst")));
+    }
+
+    private static Duration duration(Map<String, String> options, String name) {
+        return DurationStyle.detectAndParse(options.get(name));
+    }
+
+    private static void writeHistogram(LoadDriver.Result result, Path file, PrintStream out) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (PrintStream histogram = new PrintStream(Files.newOutputStream(file))) {
+            // Values are recorded in nanoseconds and written in milliseconds
+            result.latency().outputPercentileDistribution(histogram, 1e6);
+        }
+        out.println("\nPercentile distribution written to " + file.toAbsolutePath());
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.sunrisesunsetforecast.loadtest;
+
+import java.util.Locale;
+
+/**
+ * Answers {@code GET /search?q=<city>} like Nominatim, with one result at coordinates derived from
+ * the name, so the same city always lands in the same place.
+ */
+public class NominatimStandIn extends StandInServer {
+
+    public NominatimStandIn(FaultProfile profile) {
+        super("nominatim", "/search", profile);
+    }
+
+    @Override
+    protected Response respond(Request request) {
+        String city = request.query().get("q");
+        if (city == null || city.isBlank()) {
+            return Response.json(400, "{\"error\":\"Nothing to search for\"}");
+        }
+        int hash = city.toLowerCase(Locale.ROOT).hashCode();
+        double latitude = -55 + Math.floorMod(hash, 12_000) / 100.0;
+        double longitude = -180 + Math.floorMod(hash >>> 7, 36_000) / 100.0;
+        return Response.json(200, String.format(Locale.ROOT,
+                "[{\"place_id\":%d,\"lat\":\"%.4f\",\"lon\":\"%.4f\",\"display_name\":\"%s\",\"type\":\"city\"}]",
+                Math.abs((long) hash), latitude, longitude, city.replace('"', '\'')));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.sunrisesunsetforecast.loadtest;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Locale;
+
+/**
+ * Answers {@code GET /v1/forecast} like Open-Meteo: the daily sunrise, sunset, maximum temperature
+ * and weather code from today, in the location's local time. Several comma-separated coordinates
+ * get an array of forecasts in request order, as the request coalescer expects.
+ */
+public class OpenMeteoStandIn extends StandInServer {
+
+    private static final int[] WEATHER_CODES = {0, 1, 2, 3, 45, 51, 61, 63, 71, 80, 95};
+
+    public OpenMeteoStandIn(FaultProfile profile) {
+        super("open-meteo", "/v1/forecast", profile);
+    }
+
+    @Override
+    protected Response respond(Request request) {
+        var query = request.query();
+        String[] latitudes = query.getOrDefault("latitude", "").split(",");
+        String[] longitudes = query.getOrDefault("longitude", "").split(",");
+        if (latitudes[0].isEmpty() || latitudes.length != longitudes.length) {
+            return Response.json(400, "{\"error\":true,\"reason\":\"latitude and longitude must have the same number of elements\"}");
+        }
+        int days = Integer.parseInt(query.getOrDefault("forecast_days", "7"));
+        if (latitudes.length == 1) {
+            return Response.json(200, forecast(Double.parseDouble(latitudes[0]), Double.parseDouble(longitudes[0]), days));
+        }
+        StringBuilder forecasts = new StringBuilder("[");
+        for (int i = 0; i < latitudes.length; i++) {
+            forecasts.append(i == 0 ? "" : ",")
+                    .append(forecast(Double.parseDouble(latitudes[i]), Double.parseDouble(longitudes[i]), days));
+        }
+        return Response.json(200, forecasts.append(']').toString());
+    }
+
+    private static String forecast(double latitude, double longitude, int days) {
+        int utcOffsetSeconds = (int) Math.round(longitude / 15) * 3600;
+        LocalDate today = LocalDate.now(ZoneOffset.ofTotalSeconds(utcOffsetSeconds));
+        // Days lengthen towards the summer pole; good enough to look plausible
+        long halfDaySeconds = 6 * 3600 + Math.round(latitude * 60);
+        LocalTime sunrise = LocalTime.NOON.minusSeconds(halfDaySeconds);
+        LocalTime sunset = LocalTime.NOON.plusSeconds(halfDaySeconds);
+        int seed = Double.hashCode(latitude) * 31 + Double.hashCode(longitude);
+
+        StringBuilder time = new StringBuilder();
+        StringBuilder sunrises = new StringBuilder();
+        StringBuilder sunsets = new StringBuilder();
+        StringBuilder temperatures = new StringBuilder();
+        StringBuilder weatherCodes = new StringBuilder();
+        for (int day = 0; day < days; day++) {
+            String separator = day == 0 ? "" : ",";
+            LocalDate date = today.plusDays(day);
+            time.append(separator).append('"').append(date).append('"');
+            sunrises.append(separator).append('"').append(date).append('T').append(sunrise.plusMinutes(day)).append('"');
+            sunsets.append(separator).append('"').append(date).append('T').append(sunset.minusMinutes(day)).append('"');
+            temperatures.append(separator).append(String.format(Locale.ROOT, "%.1f",
+                    30 - Math.abs(latitude) / 2 + Math.floorMod(seed + day, 7)));
+            weatherCodes.append(separator).append(WEATHER_CODES[Math.floorMod(seed + day, WEATHER_CODES.length)]);
+        }
+        return String.format(Locale.ROOT, "{\"latitude\":%.4f,\"longitude\":%.4f,\"generationtime_ms\":0.05,"
+                        + "\"utc_offset_seconds\":%d,\"timezone\":\"GMT\",\"elevation\":20.0,"
+                        + "\"daily_units\":{\"time\":\"iso8601\",\"sunrise\":\"iso8601\",\"sunset\":\"iso8601\","
+                        + "\"temperature_2m_max\":\"°C\",\"weathercode\":\"wmo code\"},"
+                        + "\"daily\":{\"time\":[%s],\"sunrise\":[%s],\"sunset\":[%s],\"temperature_2m_max\":[%s],\"weathercode\":[%s]}}",
+                latitude, longitude, utcOffsetSeconds, time, sunrises, sunsets, temperatures, weatherCodes);
+    }
+}
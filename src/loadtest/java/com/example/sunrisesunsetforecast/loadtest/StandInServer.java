@@ -0,0 +1,165 @@
+package com.example.sunrisesunsetforecast.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local HTTP server standing in for an upstream. Each request is answered after a delay drawn
+ * from the {@link FaultProfile}, without holding a thread while it waits, so a slow stand-in can
+ * have any number of requests in flight, as a remote service would.
+ */
+public abstract class StandInServer implements AutoCloseable {
+
+    private final String name;
+    private final String path;
+    private final FaultProfile profile;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    private HttpServer server;
+    private ExecutorService handlers;
+    private ScheduledExecutorService responders;
+
+    protected StandInServer(String name, String path, FaultProfile profile) {
+        this.name = name;
+        this.path = path;
+        this.profile = profile;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        handlers = Executors.newFixedThreadPool(2, daemon(name + "-handler"));
+        responders = Executors.newScheduledThreadPool(2, daemon(name + "-responder"));
+        server.setExecutor(handlers);
+        server.createContext(path, this::handle);
+        server.start();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return {@code http://127.0.0.1:<port>}, without a trailing slash
+     */
+    public String baseUrl() {
+        return "http://" + server.getAddress().getAddress().getHostAddress() + ":" + port();
+    }
+
+    /**
+     * @return one line with the requests received, failed and throttled so far
+     */
+    public String stats() {
+        return String.format("%-11s %8d requests, %6d errors, %6d throttled  (%s)",
+                name, requests.sum(), errors.sum(), throttled.sum(), profile);
+    }
+
+    /**
+     * Builds the answer to a request the profile let through.
+     */
+    protected abstract Response respond(Request request) throws IOException;
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        Response response;
+        try (InputStream in = exchange.getRequestBody()) {
+            response = switch (profile.next()) {
+                case OK -> respond(new Request(exchange.getRequestMethod(), exchange.getRequestURI(), in.readAllBytes()));
+                case ERROR -> {
+                    errors.increment();
+                    yield Response.json(503, "{\"error\":\"Service unavailable (injected)\"}");
+                }
+                case THROTTLED -> {
+                    throttled.increment();
+                    yield Response.json(429, "{\"error\":\"Rate limit exceeded (injected)\"}");
+                }
+            };
+        } catch (RuntimeException e) {
+            response = Response.json(400, "{\"error\":\"" + String.valueOf(e.getMessage()).replace('"', '\'') + "\"}");
+        }
+        Response answer = response;
+        responders.schedule(() -> send(exchange, answer), profile.latency().sampleNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private static void send(HttpExchange exchange, Response response) {
+        try (exchange; OutputStream out = exchange.getResponseBody()) {
+            exchange.getResponseHeaders().set("Content-Type", response.contentType());
+            if (response.status() == 429) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+            }
+            exchange.sendResponseHeaders(response.status(), response.body().length == 0 ? -1 : response.body().length);
+            out.write(response.body());
+        } catch (IOException e) {
+            // The client gave up on the request; nothing to answer
+        }
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            handlers.shutdownNow();
+            responders.shutdownNow();
+        }
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public record Request(String method, URI uri, byte[] body) {
+
+        /**
+         * @return the decoded query parameters; a repeated parameter keeps its last value
+         */
+        public Map<String, String> query() {
+            Map<String, String> parameters = new HashMap<>();
+            String query = uri.getRawQuery();
+            if (query == null) {
+                return parameters;
+            }
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                String key = equals < 0 ? pair : pair.substring(0, equals);
+                String value = equals < 0 ? "" : pair.substring(equals + 1);
+                parameters.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+            return parameters;
+        }
+    }
+
+    public record Response(int status, String contentType, byte[] body) {
+
+        public static Response json(int status, String json) {
+            return new Response(status, "application/json", json.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
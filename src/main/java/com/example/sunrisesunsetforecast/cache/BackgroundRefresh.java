@@ -0,0 +1,35 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import java.util.function.Supplier;
+
+/**
+ * Marks the thread running a {@link CacheRefresher}, so that the upstream calls it makes on a miss
+ * of another cache, such as geocoding the city of a refreshed forecast, can give way to requests
+ * someone is waiting for.
+ */
+public final class BackgroundRefresh {
+
+    private static final ThreadLocal<Boolean> ACTIVE = ThreadLocal.withInitial(() -> false);
+
+    private BackgroundRefresh() {
+    }
+
+    /**
+     * @return whether the current thread is running a refresh
+     */
+    public static boolean isActive() {
+        return ACTIVE.get();
+    }
+
+    static <V> V call(Supplier<V> refresh) {
+        if (ACTIVE.get()) {
+            return refresh.get();
+        }
+        ACTIVE.set(true);
+        try {
+            return refresh.get();
+        } finally {
+            ACTIVE.remove();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import com.example.sunrisesunsetforecast.config.ForecastCacheProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Tells how much longer a cached value stays as it is, for HTTP caching headers. An entry is fresh
+ * until {@code ttl - refresh-ahead} after it was written; after that the next read refreshes it, and
+ * it is served stale for at most {@code refresh-ahead + stale-window} more.
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheFreshness {
+
+    private final CacheManager cacheManager;
+    private final ForecastCacheProperties properties;
+
+    /**
+     * @return the freshness of {@code value} in cache {@code cacheName}, or empty if it is not the
+     *         value cached under {@code key} (not cached, or already replaced) or the cache has no
+     *         per-entry expiry
+     */
+    public Optional<Freshness> of(String cacheName, Object key, Object value) {
+        ForecastCacheProperties.Spec spec = properties.getCaches().get(cacheName);
+        Cache cache = cacheManager.getCache(cacheName);
+        if (spec == null || cache == null
+                || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache)) {
+            return Optional.empty();
+        }
+        @SuppressWarnings("unchecked")
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> caffeine =
+                (com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache;
+        if (caffeine.policy().getIfPresentQuietly(key) != value) {
+            return Optional.empty();
+        }
+        Duration staleFor = spec.getRefreshAhead().plus(spec.getStaleWindow());
+        return caffeine.policy().expireVariably()
+                .flatMap(expiration -> expiration.getExpiresAfter(key))
+                .map(remaining -> {
+                    Duration maxAge = remaining.minus(staleFor);
+                    if (maxAge.isNegative()) {
+                        maxAge = Duration.ZERO;
+                    }
+                    return new Freshness(maxAge, remaining.minus(maxAge));
+                });
+    }
+
+    /**
+     * @param maxAge               how long the value is fresh
+     * @param staleWhileRevalidate how long after that it may still be served while it is refreshed
+     */
+    public record Freshness(Duration maxAge, Duration staleWhileRevalidate) {
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Refreshers for the caches configured with refresh-ahead, registered by the components that own
+ * each cache. Kept apart from the cache manager so that the manager does not depend on the
+ * services that in turn depend on it. Refreshers run as a {@link BackgroundRefresh}, whether the
+ * cache or the forecast precompute job calls them.
+ */
+@Component
+public class CacheRefreshRegistry {
+
+    private final Map<String, CacheRefresher<Object>> refreshers = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public <V> void register(String cacheName, CacheRefresher<V> refresher) {
+        CacheRefresher<Object> untyped = (CacheRefresher<Object>) refresher;
+        refreshers.put(cacheName, (key, previous) -> BackgroundRefresh.call(() -> untyped.refresh(key, previous)));
+    }
+
+    public CacheRefresher<Object> get(String cacheName) {
+        return refreshers.get(cacheName);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.sunrisesunsetforecast.cache;
+
+/**
+ * Recomputes a cache entry in the background, bypassing the cache itself.
+ *
+ * @param <V> the cached value type
+ */
+@FunctionalInterface
+public interface CacheRefresher<V> {
+
+    /**
+     * @param key      the cache key
+     * @param previous the value being refreshed, or null if a null result was cached
+     * @return the new value, or null to drop the entry
+     */
+    V refresh(String key, V previous);
+}
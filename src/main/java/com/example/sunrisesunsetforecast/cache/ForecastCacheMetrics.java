@@ -0,0 +1,42 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import com.example.sunrisesunsetforecast.config.ForecastCacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the Caffeine statistics of the configured forecast caches: {@code cache.gets} by hit and
+ * miss, {@code cache.evictions}, {@code cache.size}, and for refreshing caches {@code cache.load} and
+ * {@code cache.load.duration}, which count background refreshes (misses are filled by the pipeline
+ * and timed as its stages). Spring Boot only binds caches it recognises as Caffeine caches, which
+ * leaves out ours, all wrapped in a {@link TracedCache}; this binds the native cache of every
+ * configured cache under the same names and tags, so binding one twice is harmless.
+ */
+@Component
+@RequiredArgsConstructor
+public class ForecastCacheMetrics implements MeterBinder {
+
+    /**
+     * Tag Spring Boot puts on cache metrics, derived from the cache manager bean name.
+     */
+    static final String CACHE_MANAGER_TAG = "cache.manager";
+
+    private final CacheManager cacheManager;
+    private final ForecastCacheProperties properties;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String name : properties.getCaches().keySet()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache) {
+                CaffeineCacheMetrics.monitor(registry, nativeCache, name, Tags.of(CACHE_MANAGER_TAG, "cacheManager"));
+            }
+        }
+    }
+}
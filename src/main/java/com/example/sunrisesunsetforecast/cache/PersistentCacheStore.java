@@ -0,0 +1,264 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Second-tier store for one cache: an append-only file of JSON lines, one per write, under the
+ * cache's name. {@link #open} replays the file, returning the entries still within their lifetime,
+ * and rewrites the file with just those. Writes are then queued and appended by a background
+ * thread, so callers never wait for the disk. A line cut short by a crash is skipped on the next open.
+ * <p>
+ * At most {@code queueCapacity} writes wait for the disk; further ones are dropped, so an entry
+ * may then be missing, or an evicted one come back within its lifetime, after a restart. The
+ * writer compacts the file the same way as {@link #open} once it reaches {@code compactThreshold}
+ * bytes, or twice its size after the last compaction if that is more.
+ */
+@Slf4j
+public class PersistentCacheStore implements Closeable {
+
+    private static final Pending CLOSE = new Pending(null, 0, null, false);
+
+    /**
+     * One line of the file. A null value marks an evicted key; a null key marks a cleared cache.
+     */
+    record Line(String key, long writtenAt, JsonNode value) {
+    }
+
+    private record Pending(String key, long writtenAt, Object value, boolean clear) {
+    }
+
+    /**
+     * An entry read back from the file and how long ago it was written.
+     */
+    public record Loaded(Object value, Duration age) {
+    }
+
+    private final String cacheName;
+    private final Path file;
+    private final Class<?> type;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final BlockingQueue<Pending> queue;
+    private final long compactThreshold;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private Thread writer;
+    private Duration maxAge;
+    private long compactAt;
+
+    public PersistentCacheStore(String cacheName, Path directory, Class<?> type, ObjectMapper objectMapper,
+                                int queueCapacity, long compactThreshold) {
+        this(cacheName, directory, type, objectMapper, queueCapacity, compactThreshold, Clock.systemUTC());
+    }
+
+    PersistentCacheStore(String cacheName, Path directory, Class<?> type, ObjectMapper objectMapper,
+                         int queueCapacity, long compactThreshold, Clock clock) {
+        this.cacheName = cacheName;
+        this.file = directory.resolve(cacheName + ".jsonl");
+        this.type = type;
+        this.objectMapper = objectMapper;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.compactThreshold = compactThreshold;
+        this.clock = clock;
+    }
+
+    /**
+     * Loads the entries written less than {@code maxAge} ago, compacts the file to them and starts
+     * the write-behind thread.
+     */
+    public Map<String, Loaded> open(Duration maxAge) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.maxAge = maxAge;
+        Map<String, Line> lines = live();
+        long now = clock.millis();
+
+        Map<String, Loaded> loaded = new LinkedHashMap<>();
+        for (Line line : lines.values()) {
+            try {
+                loaded.put(line.key(), new Loaded(objectMapper.treeToValue(line.value(), type),
+                        Duration.ofMillis(now - line.writtenAt())));
+            } catch (JsonProcessingException e) {
+                log.warn("Dropping unreadable {} entry {}: {}", cacheName, line.key(), e.getMessage());
+            }
+        }
+        compact(lines.values());
+
+        BufferedWriter out = appender();
+        writer = new Thread(() -> writeBehind(out), "cache-l2-" + cacheName);
+        writer.setDaemon(true);
+        writer.start();
+        return loaded;
+    }
+
+    public void append(Object key, Object value) {
+        enqueue(new Pending(key.toString(), clock.millis(), value, false));
+    }
+
+    public void remove(Object key) {
+        enqueue(new Pending(key.toString(), clock.millis(), null, false));
+    }
+
+    public void clear() {
+        enqueue(new Pending(null, clock.millis(), null, true));
+    }
+
+    private void enqueue(Pending pending) {
+        if (!queue.offer(pending)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Writes out everything queued so far and stops the writer.
+     */
+    @Override
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            if (queue.offer(CLOSE, 5, TimeUnit.SECONDS)) {
+                writer.join(5000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<String, Line> replay() throws IOException {
+        Map<String, Line> lines = new LinkedHashMap<>();
+        if (!Files.exists(file)) {
+            return lines;
+        }
+        int skipped = 0;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String text;
+            while ((text = in.readLine()) != null) {
+                Line line;
+                try {
+                    line = objectMapper.readValue(text, Line.class);
+                } catch (JsonProcessingException e) {
+                    skipped++;
+                    continue;
+                }
+                if (line.key() == null) {
+                    lines.clear();
+                } else if (line.value() == null || line.value().isNull()) {
+                    lines.remove(line.key());
+                } else {
+                    lines.remove(line.key());
+                    lines.put(line.key(), line);
+                }
+            }
+        }
+        if (skipped > 0) {
+            log.warn("Skipped {} unreadable lines in {}", skipped, file);
+        }
+        return lines;
+    }
+
+    /**
+     * The entries in the file written less than {@code maxAge} ago.
+     */
+    private Map<String, Line> live() throws IOException {
+        Map<String, Line> lines = replay();
+        long now = clock.millis();
+        lines.values().removeIf(line -> now - line.writtenAt() >= maxAge.toMillis());
+        return lines;
+    }
+
+    private void compact(Iterable<Line> lines) throws IOException {
+        Path tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), cacheName, ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            for (Line line : lines) {
+                out.write(objectMapper.writeValueAsString(line));
+                out.newLine();
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        compactAt = Math.max(compactThreshold, 2 * Files.size(file));
+    }
+
+    private BufferedWriter appender() throws IOException {
+        return Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void writeBehind(BufferedWriter initial) {
+        BufferedWriter out = initial;
+        List<Pending> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                boolean closing = false;
+                for (Pending pending : batch) {
+                    if (pending == CLOSE) {
+                        closing = true;
+                    } else {
+                        write(out, pending);
+                    }
+                }
+                out.flush();
+                batch.clear();
+                long droppedWrites = dropped.getAndSet(0);
+                if (droppedWrites > 0) {
+                    log.warn("Dropped {} writes to the {} store, the write-behind queue was full", droppedWrites, cacheName);
+                }
+                if (closing) {
+                    return;
+                }
+                if (Files.size(file) >= compactAt) {
+                    out.close();
+                    compact(live().values());
+                    out = appender();
+                }
+            }
+        } catch (IOException e) {
+            log.error("Write-behind for cache " + cacheName + " stopped, later entries will not survive a restart", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.warn("Could not close the {} store: {}", cacheName, e.getMessage());
+            }
+        }
+    }
+
+    private void write(BufferedWriter out, Pending pending) throws IOException {
+        Line line;
+        try {
+            JsonNode value = pending.value() != null ? objectMapper.valueToTree(pending.value()) : null;
+            line = new Line(pending.clear() ? null : pending.key(), pending.writtenAt(), value);
+        } catch (IllegalArgumentException e) {
+            log.warn("Not persisting {} entry {}: {}", cacheName, pending.key(), e.getMessage());
+            return;
+        }
+        out.write(objectMapper.writeValueAsString(line));
+        out.newLine();
+    }
+}
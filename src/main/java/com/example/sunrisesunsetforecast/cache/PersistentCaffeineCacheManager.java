@@ -0,0 +1,89 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Policy;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caffeine cache manager whose persistent caches are backed by a {@link PersistentCacheStore}:
+ * warmed from it on registration and written through to it, asynchronously, afterwards.
+ * <p>
+ * Caches with a loader, which only refreshes (see {@link RefreshingCacheLoader}), are looked up
+ * without loading, so a miss is not also recorded as a failed load in the cache statistics.
+ * Every cache is wrapped in a {@link TracedCache}, outermost, so lookups are observed within requests.
+ */
+@Slf4j
+public class PersistentCaffeineCacheManager extends CaffeineCacheManager implements DisposableBean {
+
+    private final Map<String, PersistentCacheStore> stores = new ConcurrentHashMap<>();
+    private final ObservationRegistry observationRegistry;
+
+    public PersistentCaffeineCacheManager(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    /**
+     * Registers a cache backed by {@code store}. Entries read back keep their original write time:
+     * each one expires {@code maxAge} after it was first written, not after the restart.
+     *
+     * @param cache a cache built with variable expiry
+     */
+    public void registerPersistentCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                                        PersistentCacheStore store, Duration maxAge) {
+        Policy.VarExpiration<Object, Object> expiration = cache.policy().expireVariably()
+                .orElseThrow(() -> new IllegalArgumentException("Persistent cache " + name + " needs variable expiry"));
+        Map<String, PersistentCacheStore.Loaded> entries;
+        try {
+            entries = store.open(maxAge);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open persistent cache " + name, e);
+        }
+        entries.forEach((key, loaded) -> expiration.put(key, loaded.value(), maxAge.minus(loaded.age())));
+        log.info("Cache {}: warmed with {} entries from disk", name, entries.size());
+
+        stores.put(name, store);
+        registerCustomCache(name, cache);
+    }
+
+    @Override
+    protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+        Cache adapted = cache instanceof LoadingCache<Object, Object>
+                ? new RefreshAheadCaffeineCache(name, cache, isAllowNullValues())
+                : super.adaptCaffeineCache(name, cache);
+        PersistentCacheStore store = stores.get(name);
+        return new TracedCache(store != null ? new WriteBehindCache(adapted, store) : adapted, observationRegistry);
+    }
+
+    @Override
+    public void destroy() {
+        stores.values().forEach(PersistentCacheStore::close);
+    }
+
+    /**
+     * Looks entries up with {@code getIfPresent}, which still starts a refresh once an entry is due
+     * for one, where Spring's {@link CaffeineCache} would call the loader on every miss.
+     */
+    private static final class RefreshAheadCaffeineCache extends CaffeineCache {
+
+        RefreshAheadCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                                  boolean allowNullValues) {
+            super(name, cache, allowNullValues);
+        }
+
+        @Override
+        protected Object lookup(Object key) {
+            return getNativeCache().getIfPresent(key);
+        }
+    }
+}
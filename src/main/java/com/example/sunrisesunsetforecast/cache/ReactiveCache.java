@@ -0,0 +1,87 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import org.springframework.cache.Cache;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Spring cache access for the reactive pipeline, with loads shared while they are in flight.
+ * <p>
+ * Lookups check the Spring cache, so entries computed by the blocking pipeline are reused and
+ * expiry, size and refresh follow that cache's {@code forecast.cache} settings. On a miss the
+ * loader's {@link Mono} is kept as a shared in-flight load, so concurrent callers for the same key
+ * share one computation and no thread waits for it. Nothing runs until the first caller subscribes,
+ * and the load runs in that caller's Reactor context; it is cancelled once every caller has
+ * cancelled. Loaded values are written to the Spring cache, unless the caller says a value is
+ * not to be kept, and the load is dropped once it completes, so nothing is held here beyond the load.
+ */
+public class ReactiveCache<V> {
+
+    private final ConcurrentMap<String, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final Cache springCache;
+    private final Class<V> type;
+
+    public ReactiveCache(Cache springCache, Class<V> type) {
+        this.springCache = springCache;
+        this.type = type;
+    }
+
+    /**
+     * Returns the value if it is cached, without starting a load.
+     */
+    public V getIfPresent(String key) {
+        return springCache != null ? springCache.get(key, type) : null;
+    }
+
+    public void put(String key, V value) {
+        if (springCache != null) {
+            springCache.put(key, value);
+        }
+    }
+
+    public void invalidate(String key) {
+        if (springCache != null) {
+            springCache.evict(key);
+        }
+    }
+
+    public Mono<V> get(String key, Function<String, Mono<V>> loader) {
+        return get(key, loader, value -> true);
+    }
+
+    /**
+     * Like {@link #get(String, Function)}, writing a loaded value to the Spring cache only if it is
+     * {@code cacheable}; values that are not are still returned to the callers of that load.
+     */
+    public Mono<V> get(String key, Function<String, Mono<V>> loader, Predicate<? super V> cacheable) {
+        return Mono.defer(() -> {
+            V cached = getIfPresent(key);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            return inFlight.computeIfAbsent(key, k -> load(k, loader, cacheable));
+        });
+    }
+
+    private Mono<V> load(String key, Function<String, Mono<V>> loader, Predicate<? super V> cacheable) {
+        AtomicReference<Mono<V>> shared = new AtomicReference<>();
+        // Connected by the first subscriber, with its context, and cancelled when the last one leaves
+        shared.set(Mono.defer(() -> loader.apply(key))
+                .doOnNext(value -> {
+                    if (cacheable.test(value)) {
+                        put(key, value);
+                    }
+                })
+                .doFinally(signal -> inFlight.remove(key, shared.get()))
+                .flux()
+                .publish()
+                .refCount()
+                .singleOrEmpty());
+        return shared.get();
+    }
+}
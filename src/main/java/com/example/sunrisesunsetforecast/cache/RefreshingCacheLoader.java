@@ -0,0 +1,58 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.NullValue;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Caffeine loader behind a Spring cache that is refreshed ahead of expiry.
+ * <p>
+ * Misses are left to the {@code @Cacheable} method, so {@link #load} never loads: the cold path
+ * keeps its own single-flight and error handling, and {@link PersistentCaffeineCacheManager} looks
+ * entries up without consulting the loader. Only {@link #reload}, which Caffeine runs on its
+ * executor once an entry is past its refresh point, calls the registered {@link CacheRefresher}.
+ * A failed refresh keeps the current entry until it expires.
+ * <p>
+ * Refreshed values are written to the native cache, not through the Spring cache, so anything
+ * that mirrors Spring cache writes (the persistent tier) is told about them by the refresh listener.
+ */
+@Slf4j
+public class RefreshingCacheLoader implements CacheLoader<Object, Object> {
+
+    private final String cacheName;
+    private final CacheRefreshRegistry registry;
+    private final BiConsumer<Object, Object> refreshListener;
+
+    public RefreshingCacheLoader(String cacheName, CacheRefreshRegistry registry) {
+        this(cacheName, registry, (key, value) -> { });
+    }
+
+    public RefreshingCacheLoader(String cacheName, CacheRefreshRegistry registry, BiConsumer<Object, Object> refreshListener) {
+        this.cacheName = cacheName;
+        this.registry = registry;
+        this.refreshListener = refreshListener;
+    }
+
+    @Override
+    public Object load(Object key) {
+        return null;
+    }
+
+    @Override
+    public Object reload(Object key, Object oldValue) {
+        CacheRefresher<Object> refresher = registry.get(cacheName);
+        if (refresher == null) {
+            log.warn("No refresher registered for cache {}, dropping entry {}", cacheName, key);
+            return null;
+        }
+        log.debug("Refreshing {} entry {}", cacheName, key);
+        Object previous = oldValue instanceof NullValue ? null : oldValue;
+        Object refreshed = refresher.refresh(key.toString(), previous);
+        if (refreshed != null) {
+            refreshListener.accept(key, refreshed);
+        }
+        return refreshed;
+    }
+}
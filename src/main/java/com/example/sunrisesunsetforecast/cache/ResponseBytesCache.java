@@ -0,0 +1,130 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The encoded JSON of responses, kept for as long as the response object itself. Keys are weak
+ * and compared by identity: a cache hit returns the same response instance, so it is serialized
+ * once, and a refreshed or evicted response takes its bytes with it. The gzip variant is built
+ * on first request, and only kept if it is smaller than the JSON. Each variant has a strong ETag
+ * derived from the JSON content.
+ */
+@Component
+public class ResponseBytesCache {
+
+    private static final byte[] NOT_SMALLER = new byte[0];
+
+    private final ObjectMapper objectMapper;
+    private final boolean gzipEnabled;
+    private final Cache<Object, Encoded> cache;
+
+    public ResponseBytesCache(ObjectMapper objectMapper,
+                              @Value("${forecast.response-bytes.gzip:false}") boolean gzipEnabled,
+                              @Value("${forecast.response-bytes.maximum-size:1000}") long maximumSize) {
+        this.objectMapper = objectMapper;
+        this.gzipEnabled = gzipEnabled;
+        this.cache = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    public boolean isGzipEnabled() {
+        return gzipEnabled;
+    }
+
+    public Encoded get(Object response) {
+        return cache.get(response, this::encode);
+    }
+
+    private Encoded encode(Object response) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(response);
+            return new Encoded(json, contentHash(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot encode " + response.getClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * The first 128 bits of the SHA-256 of the content, base64url-encoded.
+     */
+    private static String contentHash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] compress(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.size() < bytes.length ? out.toByteArray() : NOT_SMALLER;
+    }
+
+    public final class Encoded {
+
+        private final byte[] json;
+        private final String contentHash;
+        private volatile byte[] gzip;
+
+        private Encoded(byte[] json, String contentHash) {
+            this.json = json;
+            this.contentHash = contentHash;
+        }
+
+        public byte[] json() {
+            return json;
+        }
+
+        /**
+         * @return the quoted strong ETag of {@link #json()}
+         */
+        public String jsonEtag() {
+            return '"' + contentHash + '"';
+        }
+
+        /**
+         * @return the quoted strong ETag of {@link #gzip()}, which differs from the JSON's as the bytes do
+         */
+        public String gzipEtag() {
+            return '"' + contentHash + "-gzip\"";
+        }
+
+        /**
+         * @return the gzip-compressed JSON, or null if gzip is disabled or would not make it smaller
+         */
+        public byte[] gzip() {
+            if (!gzipEnabled) {
+                return null;
+            }
+            byte[] compressed = gzip;
+            if (compressed == null) {
+                // Racing callers may both compress; either result is the same
+                compressed = compress(json);
+                gzip = compressed;
+            }
+            return compressed == NOT_SMALLER ? null : compressed;
+        }
+    }
+}
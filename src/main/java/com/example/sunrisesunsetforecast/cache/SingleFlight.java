@@ -0,0 +1,73 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent cache misses for the same key. The first caller runs the loader; callers
+ * arriving while it is in flight wait for and share its result (or its failure) instead of calling
+ * the upstream again. Nothing is kept once the load completes; caching stays with the Spring caches.
+ */
+@Component
+@RequiredArgsConstructor
+public class SingleFlight {
+
+    static final String SAVED_CALLS_METRIC = "forecast.singleflight.saved";
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param layer the cache the load is for, used to keep keys apart and to tag the metric
+     * @param key   the cache key
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String layer, String key, Supplier<T> loader) {
+        String flightKey = layer + ':' + key;
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            savedCalls(layer).increment();
+            return (T) await(existing);
+        }
+
+        try {
+            T value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private Counter savedCalls(String layer) {
+        return Counter.builder(SAVED_CALLS_METRIC)
+                .description("Upstream loads avoided by joining an in-flight load for the same key")
+                .tag("layer", layer)
+                .register(meterRegistry);
+    }
+}
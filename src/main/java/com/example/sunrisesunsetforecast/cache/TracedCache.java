@@ -0,0 +1,123 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Spring {@link Cache} that observes the lookups made within an observation, such as a request, as
+ * {@code forecast.cache.lookups} tagged with the cache name and whether it was a hit: a timer, and a
+ * {@code cache} span. A lookup that loads the value on a miss includes the load, whose own
+ * observations become children of the lookup. Writes, and lookups outside any observation, such as
+ * cache refreshes, are not observed.
+ */
+public class TracedCache implements Cache {
+
+    static final String LOOKUPS_METRIC = "forecast.cache.lookups";
+
+    private final Cache delegate;
+    private final ObservationRegistry observationRegistry;
+
+    public TracedCache(Cache delegate, ObservationRegistry observationRegistry) {
+        this.delegate = delegate;
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Observation observation = start();
+        if (observation == null) {
+            return delegate.get(key);
+        }
+        ValueWrapper value = delegate.get(key);
+        stop(observation, value != null);
+        return value;
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        Observation observation = start();
+        if (observation == null) {
+            return delegate.get(key, type);
+        }
+        T value = delegate.get(key, type);
+        stop(observation, value != null);
+        return value;
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Observation observation = start();
+        if (observation == null) {
+            return delegate.get(key, valueLoader);
+        }
+        boolean[] loaded = new boolean[1];
+        try (Observation.Scope scope = observation.openScope()) {
+            return delegate.get(key, () -> {
+                loaded[0] = true;
+                return valueLoader.call();
+            });
+        } catch (RuntimeException | Error e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            stop(observation, !loaded[0]);
+        }
+    }
+
+    private Observation start() {
+        if (observationRegistry.getCurrentObservation() == null) {
+            return null;
+        }
+        return Observation.createNotStarted(LOOKUPS_METRIC, observationRegistry)
+                .contextualName("cache")
+                .lowCardinalityKeyValue("cache", getName())
+                .start();
+    }
+
+    private static void stop(Observation observation, boolean hit) {
+        observation.lowCardinalityKeyValue("result", hit ? "hit" : "miss").stop();
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return delegate.invalidate();
+    }
+}
@@ -1,7 +1,12 @@
 package com.example.sunrisesunsetforecast.client;
 
+import com.example.sunrisesunsetforecast.cache.CacheRefreshRegistry;
+import com.example.sunrisesunsetforecast.cache.SingleFlight;
 import com.example.sunrisesunsetforecast.client.dto.OpenMeteoResponse;
 import com.example.sunrisesunsetforecast.exception.ExternalServiceException;
+import com.example.sunrisesunsetforecast.resilience.UpstreamGuards;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,6 +17,11 @@ import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import com.example.sunrisesunsetforecast.service.GeocodingService;
 import com.example.sunrisesunsetforecast.model.Coordinates;
 
@@ -23,13 +33,49 @@ public class OpenMeteoClient {
     @Value("${openmeteo.api.base-url}")
     private String baseUrl;
 
+    @Value("${openmeteo.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${openmeteo.batch.window:10ms}")
+    private Duration batchWindow;
+
+    @Value("${openmeteo.batch.max-size:50}")
+    private int batchMaxSize;
+
     private final WebClient webClient;
     private final GeocodingService geocodingService;
+    private final SingleFlight singleFlight;
+    private final CacheRefreshRegistry cacheRefreshRegistry;
+    private final UpstreamGuards upstreamGuards;
+
+    private OpenMeteoRequestCoalescer coalescer;
+
+    @PostConstruct
+    void init() {
+        cacheRefreshRegistry.<OpenMeteoResponse>register("openMeteoForecast", (key, previous) -> fetchSunForecast(key));
+        if (batchEnabled) {
+            coalescer = new OpenMeteoRequestCoalescer(this::fetchForecasts, batchWindow, batchMaxSize);
+            log.info("Coalescing Open-Meteo lookups within {} ms, up to {} locations per request",
+                    batchWindow.toMillis(), batchMaxSize);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (coalescer != null) {
+            coalescer.shutdown();
+        }
+    }
 
     @Cacheable(value = "openMeteoForecast", key = "#city.toLowerCase()")
     public OpenMeteoResponse getSunForecast(String city) {
-        log.info("Fetching coordinates for city: {}", city);
-        
+        // Concurrent misses for the same city share one upstream call
+        return singleFlight.execute("openMeteoForecast", city.toLowerCase(), () -> fetchSunForecast(city));
+    }
+
+    private OpenMeteoResponse fetchSunForecast(String city) {
+        log.debug("Fetching Open-Meteo forecast for city: {}", city);
+
         try {
             // First, get coordinates for the city
             Coordinates coordinates = geocodingService.getCoordinates(city);
@@ -37,35 +83,63 @@ public class OpenMeteoClient {
                 throw new ExternalServiceException("Could not find coordinates for city: " + city);
             }
 
-            // Build the URI with query parameters
-            URI uri = UriComponentsBuilder.fromHttpUrl(baseUrl)
-                    .queryParam("latitude", coordinates.getLatitude())
-                    .queryParam("longitude", coordinates.getLongitude())
-                    .queryParam("daily", "sunrise,sunset,temperature_2m_max,weathercode")
-                    .queryParam("timezone", "auto")
-                    .queryParam("forecast_days", 1) // We only need tomorrow's forecast
-                    .queryParam("temperature_unit", "celsius")
-                    .queryParam("windspeed_unit", "kmh")
-                    .queryParam("precipitation_unit", "mm")
-                    .build()
-                    .toUri();
-
-            log.debug("Calling Open-Meteo API: {}", uri);
-            
-            // Make the API call
-            return webClient.get()
-                    .uri(uri)
-                    .retrieve()
-                    .bodyToMono(OpenMeteoResponse.class)
+            return fetchForecast(coordinates)
                     .onErrorResume(e -> {
                         log.error("Error calling Open-Meteo API for city: " + city, e);
                         return Mono.error(new ExternalServiceException("Error fetching weather data: " + e.getMessage()));
                     })
+                    .contextCapture()
                     .block();
-                    
+
         } catch (Exception e) {
             log.error("Error in getSunForecast for city: " + city, e);
             throw new ExternalServiceException("Error processing weather data: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Non-blocking forecast lookup for known coordinates. Goes through the request coalescer when
+     * batching is enabled. Not cached; callers cache at the forecast level.
+     */
+    public Mono<OpenMeteoResponse> fetchForecast(Coordinates coordinates) {
+        if (coalescer != null) {
+            return Mono.fromFuture(() -> coalescer.submit(coordinates));
+        }
+        return fetchForecasts(List.of(coordinates)).map(responses -> responses.get(0));
+    }
+
+    /**
+     * Fetches several locations in one request. Open-Meteo answers a single location with an
+     * object and several locations with an array in request order.
+     */
+    private Mono<List<OpenMeteoResponse>> fetchForecasts(List<Coordinates> locations) {
+        URI uri = buildUri(locations);
+        log.debug("Calling Open-Meteo API for {} locations: {}", locations.size(), uri);
+
+        WebClient.ResponseSpec response = webClient.get()
+                .uri(uri)
+                .retrieve();
+        Mono<List<OpenMeteoResponse>> forecasts = locations.size() == 1
+                ? response.bodyToMono(OpenMeteoResponse.class).map(List::of)
+                : response.bodyToMono(OpenMeteoResponse[].class).map(Arrays::asList);
+        return upstreamGuards.get(UpstreamGuards.OPEN_METEO).guard(forecasts);
+    }
+
+    private URI buildUri(List<Coordinates> locations) {
+        return UriComponentsBuilder.fromHttpUrl(baseUrl)
+                .queryParam("latitude", locations.stream()
+                        .map(location -> String.valueOf(location.getLatitude()))
+                        .collect(Collectors.joining(",")))
+                .queryParam("longitude", locations.stream()
+                        .map(location -> String.valueOf(location.getLongitude()))
+                        .collect(Collectors.joining(",")))
+                .queryParam("daily", "sunrise,sunset,temperature_2m_max,weathercode")
+                .queryParam("timezone", "auto")
+                .queryParam("forecast_days", 2) // Today and tomorrow; tomorrow is what we forecast
+                .queryParam("temperature_unit", "celsius")
+                .queryParam("windspeed_unit", "kmh")
+                .queryParam("precipitation_unit", "mm")
+                .build()
+                .toUri();
+    }
 }
@@ -0,0 +1,127 @@
+package com.example.sunrisesunsetforecast.client;
+
+import com.example.sunrisesunsetforecast.client.dto.OpenMeteoResponse;
+import com.example.sunrisesunsetforecast.exception.ExternalServiceException;
+import com.example.sunrisesunsetforecast.model.Coordinates;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Collects Open-Meteo lookups that arrive within a short window and sends them as one
+ * multi-location request. A batch is flushed when the window closes or when it reaches the
+ * maximum size, whichever happens first; the array response is handed back to each caller by position.
+ */
+@Slf4j
+class OpenMeteoRequestCoalescer {
+
+    private final Function<List<Coordinates>, Mono<List<OpenMeteoResponse>>> batchFetcher;
+    private final Duration window;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Batch pending;
+
+    OpenMeteoRequestCoalescer(Function<List<Coordinates>, Mono<List<OpenMeteoResponse>>> batchFetcher,
+                              Duration window, int maxBatchSize) {
+        this.batchFetcher = batchFetcher;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "open-meteo-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    CompletableFuture<OpenMeteoResponse> submit(Coordinates coordinates) {
+        CompletableFuture<OpenMeteoResponse> result = new CompletableFuture<>();
+        Batch full = null;
+        lock.lock();
+        try {
+            if (pending == null) {
+                Batch batch = new Batch();
+                pending = batch;
+                scheduler.schedule(() -> flushIfPending(batch), window.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            pending.coordinates.add(coordinates);
+            pending.callers.add(result);
+            if (pending.coordinates.size() >= maxBatchSize) {
+                full = pending;
+                pending = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full != null) {
+            send(full);
+        }
+        return result;
+    }
+
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void flushIfPending(Batch batch) {
+        lock.lock();
+        try {
+            if (pending != batch) {
+                return; // Already flushed because it filled up
+            }
+            pending = null;
+        } finally {
+            lock.unlock();
+        }
+        send(batch);
+    }
+
+    private void send(Batch batch) {
+        int size = batch.coordinates.size();
+        log.debug("Sending {} coalesced Open-Meteo lookups", size);
+        Mono<List<OpenMeteoResponse>> request;
+        try {
+            request = batchFetcher.apply(batch.coordinates);
+        } catch (RuntimeException e) {
+            failAll(batch, new ExternalServiceException("Error fetching weather data: " + e.getMessage(), e));
+            return;
+        }
+        request.subscribe(
+                responses -> {
+                    if (responses.size() != size) {
+                        failAll(batch, new ExternalServiceException(
+                                "Open-Meteo returned " + responses.size() + " results for " + size + " locations"));
+                        return;
+                    }
+                    for (int i = 0; i < size; i++) {
+                        batch.callers.get(i).complete(responses.get(i));
+                    }
+                },
+                error -> failAll(batch, error instanceof ExternalServiceException
+                        ? error
+                        : new ExternalServiceException("Error fetching weather data: " + error.getMessage(), error)),
+                () -> failAll(batch, new ExternalServiceException("Open-Meteo returned no data")));
+    }
+
+    /**
+     * Fails every caller of the batch that has not been completed yet.
+     */
+    private static void failAll(Batch batch, Throwable error) {
+        batch.callers.forEach(caller -> caller.completeExceptionally(error));
+    }
+
+    private static final class Batch {
+        private final List<Coordinates> coordinates = new ArrayList<>();
+        private final List<CompletableFuture<OpenMeteoResponse>> callers = new ArrayList<>();
+    }
+}
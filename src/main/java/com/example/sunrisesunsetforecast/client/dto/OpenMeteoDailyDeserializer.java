@@ -0,0 +1,190 @@
+package com.example.sunrisesunsetforecast.client.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Streams the {@code daily} block of an Open-Meteo response straight into primitive columns.
+ * Timestamps such as {@code 2024-06-01} or {@code 2024-06-01T05:12} are read from the parser's
+ * character buffer, so no {@code String}, boxed value or {@code java.time} object is created per
+ * entry. Numeric times are accepted as well, which is how a cached {@link OpenMeteoResponse.Daily}
+ * is written back.
+ */
+public class OpenMeteoDailyDeserializer extends StdDeserializer<OpenMeteoResponse.Daily> {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    public OpenMeteoDailyDeserializer() {
+        super(OpenMeteoResponse.Daily.class);
+    }
+
+    @Override
+    public OpenMeteoResponse.Daily deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        OpenMeteoResponse.Daily daily = new OpenMeteoResponse.Daily();
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = p.nextToken();
+        }
+        for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "time" -> daily.setTime(readTimes(p, ctxt));
+                case "sunrise" -> daily.setSunriseTimes(readTimes(p, ctxt));
+                case "sunset" -> daily.setSunsetTimes(readTimes(p, ctxt));
+                case "temperature_2m_max" -> daily.setTemperature2mMax(readDoubles(p, ctxt));
+                case "weathercode" -> daily.setWeatherCode(readInts(p, ctxt));
+                default -> p.skipChildren();
+            }
+        }
+        return daily;
+    }
+
+    private long[] readTimes(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!startArray(p, ctxt)) {
+            return null;
+        }
+        long[] values = new long[INITIAL_CAPACITY];
+        int size = 0;
+        for (JsonToken token = p.nextToken(); token != JsonToken.END_ARRAY; token = p.nextToken()) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = switch (token) {
+                case VALUE_STRING -> parseLocalEpochSecond(p, ctxt);
+                case VALUE_NUMBER_INT -> p.getLongValue();
+                case VALUE_NULL -> OpenMeteoResponse.Daily.NO_TIME;
+                default -> (long) ctxt.handleUnexpectedToken(long.class, p);
+            };
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    private double[] readDoubles(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!startArray(p, ctxt)) {
+            return null;
+        }
+        double[] values = new double[INITIAL_CAPACITY];
+        int size = 0;
+        for (JsonToken token = p.nextToken(); token != JsonToken.END_ARRAY; token = p.nextToken()) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = switch (token) {
+                case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> p.getDoubleValue();
+                case VALUE_STRING -> p.getValueAsDouble(Double.NaN); // "NaN", as written for a missing value
+                case VALUE_NULL -> Double.NaN;
+                default -> (double) ctxt.handleUnexpectedToken(double.class, p);
+            };
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    private int[] readInts(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!startArray(p, ctxt)) {
+            return null;
+        }
+        int[] values = new int[INITIAL_CAPACITY];
+        int size = 0;
+        for (JsonToken token = p.nextToken(); token != JsonToken.END_ARRAY; token = p.nextToken()) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = switch (token) {
+                case VALUE_NUMBER_INT -> p.getIntValue();
+                case VALUE_NULL -> OpenMeteoResponse.Daily.NO_WEATHER_CODE;
+                default -> (int) ctxt.handleUnexpectedToken(int.class, p);
+            };
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * @return false if the column is null
+     */
+    private boolean startArray(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NULL) {
+            return false;
+        }
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            ctxt.handleUnexpectedToken(long[].class, p);
+        }
+        return true;
+    }
+
+    /**
+     * Parses {@code yyyy-MM-dd}, {@code yyyy-MM-dd'T'HH:mm} or {@code yyyy-MM-dd'T'HH:mm:ss} as local
+     * wall-clock epoch seconds. Open-Meteo sends local times without an offset when asked for
+     * {@code timezone=auto}; anything else is rejected.
+     */
+    private long parseLocalEpochSecond(JsonParser p, DeserializationContext ctxt) throws IOException {
+        char[] chars = p.getTextCharacters();
+        int offset = p.getTextOffset();
+        int length = p.getTextLength();
+        if ((length == 10 || length == 16 || length == 19)
+                && chars[offset + 4] == '-' && chars[offset + 7] == '-') {
+            int year = digits(chars, offset, 4);
+            int month = digits(chars, offset + 5, 2);
+            int day = digits(chars, offset + 8, 2);
+            int seconds = 0;
+            boolean valid = year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= lengthOfMonth(year, month);
+            if (valid && length > 10) {
+                int hour = digits(chars, offset + 11, 2);
+                int minute = digits(chars, offset + 14, 2);
+                int second = 0;
+                if (length == 19) {
+                    second = chars[offset + 16] == ':' ? digits(chars, offset + 17, 2) : -1;
+                }
+                valid = chars[offset + 10] == 'T' && chars[offset + 13] == ':'
+                        && hour >= 0 && hour < 24 && minute >= 0 && minute < 60 && second >= 0 && second < 60;
+                seconds = hour * 3600 + minute * 60 + second;
+            }
+            if (valid) {
+                return epochDay(year, month, day) * 86_400 + seconds;
+            }
+        }
+        return (long) ctxt.handleWeirdStringValue(LocalDateTime.class, p.getText(),
+                "expected yyyy-MM-dd or yyyy-MM-dd'T'HH:mm[:ss] without an offset");
+    }
+
+    /**
+     * @return the decimal value of {@code count} digits, or -1 if any of them is not a digit
+     */
+    private static int digits(char[] chars, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return 30 + ((month + month / 8) & 1);
+    }
+
+    /**
+     * Days since 1970-01-01 in the proleptic Gregorian calendar, as {@code LocalDate.toEpochDay()}.
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+}
@@ -1,10 +1,9 @@
 package com.example.sunrisesunsetforecast.client.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Data;
 
-import java.util.List;
-
 /**
  * DTO representing the response from the OpenMeteo API.
  * See: https://open-meteo.com/
@@ -13,22 +12,49 @@ import java.util.List;
 public class OpenMeteoResponse {
     private double latitude;
     private double longitude;
+
+    /**
+     * The location's time zone id, e.g. {@code Europe/Berlin}, sent when asked for {@code timezone=auto}.
+     */
+    private String timezone;
+
+    /**
+     * The location's offset at the time of the request, which is not that of another day across
+     * a daylight saving change; resolve offsets from {@link #timezone} instead.
+     */
+    @JsonProperty("utc_offset_seconds")
+    private Integer utcOffsetSeconds;
+
     private Daily daily;
-    
+
+    /**
+     * The daily forecast as primitive columns, one entry per day. Times are the location's local
+     * wall-clock time in epoch seconds, i.e. {@code LocalDateTime.toEpochSecond(ZoneOffset.UTC)};
+     * resolve them in {@code timezone} to get the instant. Decoded by {@link OpenMeteoDailyDeserializer}.
+     */
     @Data
+    @JsonDeserialize(using = OpenMeteoDailyDeserializer.class)
     public static class Daily {
-        private List<String> time;
-        
+
+        /** Marks a missing time. */
+        public static final long NO_TIME = Long.MIN_VALUE;
+
+        /** Marks a missing weather code; a missing temperature is {@code NaN}. */
+        public static final int NO_WEATHER_CODE = -1;
+
+        /** Local midnight of each day. */
+        private long[] time;
+
         @JsonProperty("sunrise")
-        private List<String> sunriseTimes;
-        
+        private long[] sunriseTimes;
+
         @JsonProperty("sunset")
-        private List<String> sunsetTimes;
-        
+        private long[] sunsetTimes;
+
         @JsonProperty("temperature_2m_max")
-        private List<Double> temperature2mMax;
-        
+        private double[] temperature2mMax;
+
         @JsonProperty("weathercode")
-        private List<Integer> weatherCode;
+        private int[] weatherCode;
     }
 }
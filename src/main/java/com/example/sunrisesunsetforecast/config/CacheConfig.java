@@ -0,0 +1,133 @@
+package com.example.sunrisesunsetforecast.config;
+
+import com.example.sunrisesunsetforecast.cache.CacheRefreshRegistry;
+import com.example.sunrisesunsetforecast.cache.PersistentCacheStore;
+import com.example.sunrisesunsetforecast.cache.PersistentCaffeineCacheManager;
+import com.example.sunrisesunsetforecast.cache.RefreshingCacheLoader;
+import com.example.sunrisesunsetforecast.client.dto.OpenMeteoResponse;
+import com.example.sunrisesunsetforecast.dto.SunForecastResponse;
+import com.example.sunrisesunsetforecast.model.Coordinates;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+/**
+ * Caffeine cache manager for the forecast caches. Caches listed in {@link ForecastCacheProperties}
+ * get their own expiry, with refresh-ahead and stale-while-revalidate where configured, and a disk
+ * tier where marked {@code persist}; any other cache uses {@code spring.cache.caffeine.spec}.
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(ForecastCacheProperties.class)
+public class CacheConfig {
+
+    /**
+     * Value types of the caches that can be persisted, needed to read entries back.
+     */
+    private static final Map<String, Class<?>> PERSISTABLE_TYPES = Map.of(
+            "cityCoordinates", Coordinates.class,
+            "openMeteoForecast", OpenMeteoResponse.class,
+            "sunForecast", SunForecastResponse.class);
+
+    @Bean
+    public ThreadPoolTaskExecutor cacheRefreshExecutor(ForecastCacheProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getRefreshThreads());
+        executor.setMaxPoolSize(properties.getRefreshThreads());
+        executor.setThreadNamePrefix("cache-refresh-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean
+    public CacheManager cacheManager(ForecastCacheProperties properties,
+                                     CacheRefreshRegistry refreshRegistry,
+                                     @Qualifier("cacheRefreshExecutor") Executor refreshExecutor,
+                                     ObjectMapper objectMapper,
+                                     ObservationRegistry observationRegistry,
+                                     @Value("${spring.cache.caffeine.spec:maximumSize=1000,expireAfterWrite=1h}") String defaultSpec) {
+        PersistentCaffeineCacheManager cacheManager = new PersistentCaffeineCacheManager(observationRegistry);
+        cacheManager.setCacheSpecification(defaultSpec);
+
+        ForecastCacheProperties.Persistence persistence = properties.getPersistence();
+        properties.getCaches().forEach((name, spec) -> {
+            if (persistence.isEnabled() && spec.isPersist()) {
+                Class<?> type = PERSISTABLE_TYPES.get(name);
+                if (type == null) {
+                    throw new IllegalStateException("forecast.cache.caches." + name + " cannot be persisted");
+                }
+                PersistentCacheStore store = new PersistentCacheStore(name, persistence.getDirectory(), type, objectMapper,
+                        persistence.getQueueCapacity(), persistence.getCompactThreshold().toBytes());
+                Cache<Object, Object> cache = buildCache(name, spec, refreshRegistry, refreshExecutor, store::append);
+                cacheManager.registerPersistentCache(name, cache, store, expireAfter(spec));
+            } else {
+                cacheManager.registerCustomCache(name, buildCache(name, spec, refreshRegistry, refreshExecutor, (key, value) -> { }));
+            }
+        });
+        return cacheManager;
+    }
+
+    static Cache<Object, Object> buildCache(String name, ForecastCacheProperties.Spec spec,
+                                            CacheRefreshRegistry refreshRegistry, Executor refreshExecutor,
+                                            BiConsumer<Object, Object> refreshListener) {
+        // Variable expiry, fixed per cache, so that entries read back from disk can keep their age
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .recordStats()
+                .maximumSize(spec.getMaximumSize())
+                .expireAfter(expireAfterWrite(expireAfter(spec)))
+                .executor(refreshExecutor);
+        if (!spec.isRefreshing()) {
+            log.info("Cache {}: ttl {}", name, spec.getTtl());
+            return builder.build();
+        }
+
+        Duration refreshAfter = spec.getTtl().minus(spec.getRefreshAhead());
+        if (refreshAfter.isNegative() || refreshAfter.isZero()) {
+            throw new IllegalStateException("forecast.cache.caches." + name + ".refresh-ahead must be shorter than its ttl");
+        }
+        log.info("Cache {}: refreshed after {}, served stale until {}", name, refreshAfter, expireAfter(spec));
+        return builder
+                .refreshAfterWrite(refreshAfter)
+                .build(new RefreshingCacheLoader(name, refreshRegistry, refreshListener));
+    }
+
+    private static Duration expireAfter(ForecastCacheProperties.Spec spec) {
+        return spec.getTtl().plus(spec.getStaleWindow());
+    }
+
+    private static Expiry<Object, Object> expireAfterWrite(Duration duration) {
+        long nanos = duration.toNanos();
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(Object key, Object value, long currentTime) {
+                return nanos;
+            }
+
+            @Override
+            public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+                return nanos;
+            }
+
+            @Override
+            public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.sunrisesunsetforecast.config;
+
+import com.example.sunrisesunsetforecast.logging.LoggingContext;
+import io.micrometer.context.ContextSnapshotFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread model for the blocking parts of the forecast pipeline, selected by {@code forecast.execution.mode}:
+ * <ul>
+ *   <li>{@code platform} (default): Tomcat's worker pool, fixed pools for batch lookups and chat model
+ *       calls, and Reactor's bounded elastic scheduler for blocking calls made from the reactive pipeline.
+ *       Spring MVC's asynchronous request handling, such as writing streamed events, gets a fixed pool too.</li>
+ *   <li>{@code virtual}: every request, batch lookup, chat model call and blocking call runs on its own virtual thread,
+ *       so {@code block()} and the synchronous chat model call park a virtual thread instead of
+ *       holding a platform thread.</li>
+ * </ul>
+ * Batch lookups, chat model calls and precomputed forecasts run in the observation, and with the logging context, of the
+ * request that submitted them.
+ */
+@Slf4j
+@Configuration
+public class ExecutorConfig {
+
+    private static final String EXECUTION_MODE = "forecast.execution.mode";
+    private static final ContextSnapshotFactory CONTEXT_SNAPSHOTS = ContextSnapshotFactory.builder().build();
+
+    @Value("${forecast.batch.parallelism:8}")
+    private int batchParallelism;
+
+    @Value("${forecast.batch.queue-capacity:500}")
+    private int batchQueueCapacity;
+
+    @Value("${forecast.description.parallelism:16}")
+    private int descriptionParallelism;
+
+    @Value("${forecast.description.queue-capacity:100}")
+    private int descriptionQueueCapacity;
+
+    @Value("${forecast.precompute.concurrency:2}")
+    private int precomputeConcurrency;
+
+    @Value("${forecast.precompute.top-n:50}")
+    private int precomputeTopN;
+
+    @Value("${forecast.web.async.threads:16}")
+    private int mvcAsyncThreads;
+
+    @Value("${forecast.web.async.queue-capacity:1000}")
+    private int mvcAsyncQueueCapacity;
+
+    /**
+     * Spring MVC would otherwise fall back to a new thread per asynchronous task, since the
+     * executors here stop Spring Boot from providing its application task executor.
+     */
+    @Bean
+    public WebMvcConfigurer mvcAsyncSupportConfigurer(@Qualifier("mvcAsyncExecutor") AsyncTaskExecutor mvcAsyncExecutor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(mvcAsyncExecutor);
+            }
+        };
+    }
+
+    /**
+     * Runs the cache misses of batch requests. The pool size is the upper bound on concurrent
+     * upstream forecasts across all batches; excess work waits in the queue, and is rejected once
+     * {@code forecast.batch.queue-capacity} lookups are waiting.
+     */
+    @Bean
+    @ConditionalOnProperty(name = EXECUTION_MODE, havingValue = "platform", matchIfMissing = true)
+    public ThreadPoolTaskExecutor batchForecastExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(batchParallelism);
+        executor.setMaxPoolSize(batchParallelism);
+        executor.setQueueCapacity(batchQueueCapacity);
+        executor.setThreadNamePrefix("batch-forecast-");
+        executor.setTaskDecorator(ExecutorConfig::propagate);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs chat model calls for forecast descriptions, which may outlive the request that started
+     * them when it stops waiting at the latency budget. Calls beyond
+     * {@code forecast.description.parallelism} wait in the queue, and are rejected once
+     * {@code forecast.description.queue-capacity} are waiting; their requests get the template.
+     */
+    @Bean
+    @ConditionalOnProperty(name = EXECUTION_MODE, havingValue = "platform", matchIfMissing = true)
+    public ThreadPoolTaskExecutor descriptionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(descriptionParallelism);
+        executor.setMaxPoolSize(descriptionParallelism);
+        executor.setQueueCapacity(descriptionQueueCapacity);
+        executor.setThreadNamePrefix("forecast-description-");
+        executor.setTaskDecorator(ExecutorConfig::propagate);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs the forecasts of the precompute job, {@code forecast.precompute.concurrency} at a time.
+     * The queue holds one run's worth of cities.
+     */
+    @Bean
+    @ConditionalOnProperty(name = EXECUTION_MODE, havingValue = "platform", matchIfMissing = true)
+    public ThreadPoolTaskExecutor precomputeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(precomputeConcurrency);
+        executor.setMaxPoolSize(precomputeConcurrency);
+        executor.setQueueCapacity(precomputeTopN);
+        executor.setThreadNamePrefix("forecast-precompute-");
+        executor.setTaskDecorator(ExecutorConfig::propagate);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs Spring MVC's asynchronous work, such as sending the events of a streamed response.
+     * Tasks beyond the queue capacity are rejected rather than piling up.
+     */
+    @Bean
+    @ConditionalOnProperty(name = EXECUTION_MODE, havingValue = "platform", matchIfMissing = true)
+    public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(mvcAsyncThreads);
+        executor.setMaxPoolSize(mvcAsyncThreads);
+        executor.setQueueCapacity(mvcAsyncQueueCapacity);
+        executor.setThreadNamePrefix("mvc-async-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = EXECUTION_MODE, havingValue = "platform", matchIfMissing = true)
+    public Scheduler blockingCallScheduler() {
+        return Schedulers.boundedElastic();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = EXECUTION_MODE, havingValue = "virtual")
+    public ExecutorService virtualThreadExecutor() {
+        log.info("Running requests and blocking upstream calls on virtual threads");
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Each request is handled on a new virtual thread instead of Tomcat's worker pool.
+     */
+    @Bean
+    @ConditionalOnProperty(name = EXECUTION_MODE, havingValue = "virtual")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    /**
+     * Batch lookups get a virtual thread each. Threads are cheap, so the parallelism limit is kept
+     * with a semaphore to protect the upstreams rather than with a pool size; waiting tasks park
+     * their own virtual thread, never the caller. As with the platform pool, no more than
+     * {@code forecast.batch.queue-capacity} tasks wait.
+     */
+    @Bean(name = "batchForecastExecutor")
+    @ConditionalOnProperty(name = EXECUTION_MODE, havingValue = "virtual")
+    public Executor virtualBatchForecastExecutor(ExecutorService virtualThreadExecutor) {
+        return limited(virtualThreadExecutor, batchParallelism, batchQueueCapacity);
+    }
+
+    /**
+     * Chat model calls get a virtual thread each, with the same limits as the platform pool.
+     */
+    @Bean(name = "descriptionExecutor")
+    @ConditionalOnProperty(name = EXECUTION_MODE, havingValue = "virtual")
+    public Executor virtualDescriptionExecutor(ExecutorService virtualThreadExecutor) {
+        return limited(virtualThreadExecutor, descriptionParallelism, descriptionQueueCapacity);
+    }
+
+    @Bean(name = "precomputeExecutor")
+    @ConditionalOnProperty(name = EXECUTION_MODE, havingValue = "virtual")
+    public Executor virtualPrecomputeExecutor(ExecutorService virtualThreadExecutor) {
+        return limited(virtualThreadExecutor, precomputeConcurrency, precomputeTopN);
+    }
+
+    @Bean(name = "mvcAsyncExecutor")
+    @ConditionalOnProperty(name = EXECUTION_MODE, havingValue = "virtual")
+    public AsyncTaskExecutor virtualMvcAsyncExecutor(ExecutorService virtualThreadExecutor) {
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+
+    @Bean(name = "blockingCallScheduler")
+    @ConditionalOnProperty(name = EXECUTION_MODE, havingValue = "virtual")
+    public Scheduler virtualBlockingCallScheduler(ExecutorService virtualThreadExecutor) {
+        return Schedulers.fromExecutorService(virtualThreadExecutor, "virtual");
+    }
+
+    private static Runnable propagate(Runnable task) {
+        return CONTEXT_SNAPSHOTS.captureAll().wrap(LoggingContext.wrap(task));
+    }
+
+    /**
+     * Runs at most {@code parallelism} tasks at once with up to {@code queueCapacity} more waiting
+     * for a permit; further tasks are rejected.
+     */
+    private static Executor limited(ExecutorService virtualThreadExecutor, int parallelism, int queueCapacity) {
+        Semaphore permits = new Semaphore(parallelism);
+        AtomicInteger submitted = new AtomicInteger(); // Running and waiting
+        long limit = (long) parallelism + queueCapacity;
+        return task -> {
+            if (submitted.incrementAndGet() > limit) {
+                submitted.decrementAndGet();
+                throw new RejectedExecutionException("More than " + queueCapacity + " tasks waiting");
+            }
+            Runnable propagated = propagate(task);
+            try {
+                virtualThreadExecutor.execute(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        propagated.run();
+                    } finally {
+                        permits.release();
+                        submitted.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                submitted.decrementAndGet();
+                throw e;
+            }
+        };
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.sunrisesunsetforecast.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-cache expiry settings under {@code forecast.cache.caches.<name>}. Caches not listed here use
+ * {@code spring.cache.caffeine.spec}.
+ * <p>
+ * An entry is fresh until {@code ttl - refresh-ahead}. The first read after that returns it and
+ * starts one background refresh. Until {@code ttl + stale-window} the entry is still served
+ * (stale) while that refresh runs; only after that does a read miss and take the cold path.
+ */
+@Data
+@ConfigurationProperties(prefix = "forecast.cache")
+public class ForecastCacheProperties {
+
+    /**
+     * Threads running background refreshes, shared by all caches.
+     */
+    private int refreshThreads = 4;
+
+    private Persistence persistence = new Persistence();
+
+    private Map<String, Spec> caches = new LinkedHashMap<>();
+
+    /**
+     * Disk tier for the caches marked {@code persist}, read back on startup.
+     */
+    @Data
+    public static class Persistence {
+        private boolean enabled = false;
+        private Path directory = Paths.get("data", "cache");
+        /**
+         * Writes waiting for the disk per cache; more are dropped rather than held in memory.
+         */
+        private int queueCapacity = 10_000;
+        /**
+         * File size at which a cache's file is compacted while running.
+         */
+        private DataSize compactThreshold = DataSize.ofMegabytes(16);
+    }
+
+    @Data
+    public static class Spec {
+        private Duration ttl = Duration.ofHours(1);
+        private Duration refreshAhead = Duration.ZERO;
+        private Duration staleWindow = Duration.ZERO;
+        private long maximumSize = 1000;
+        private boolean persist = false;
+
+        public boolean isRefreshing() {
+            return !refreshAhead.isZero() || !staleWindow.isZero();
+        }
+    }
+}
@@ -1,31 +1,88 @@
 package com.example.sunrisesunsetforecast.config;
 
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
 
 @Configuration
 public class LangChainConfig {
 
+    // Sampling and limits shared by every model bean; the batch model scales the limits with the batch
+    private static final double TEMPERATURE = 0.7;
+    private static final double TOP_P = 0.9;
+    private static final double PENALTY = 0.1;
+    private static final int MAX_TOKENS = 500;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
     @Value("${openrouter.api.key}")
     private String openRouterApiKey;
 
+    @Value("${openrouter.api.base-url:https://openrouter.ai/api/v1}")
+    private String openRouterBaseUrl;
+
+    @Value("${openrouter.api.model:openai/gpt-oss-20b:free}")
+    private String modelName;
+
+    @Value("${forecast.description.batch.max-size:10}")
+    private int batchMaxSize;
+
     @Bean
+    @Primary
     public ChatLanguageModel chatLanguageModel() {
+        return chatModel(MAX_TOKENS, TIMEOUT);
+    }
+
+    /**
+     * Same model and settings as {@link #chatLanguageModel()} for prompts describing up to
+     * {@code forecast.description.batch.max-size} forecasts at once. The token limit is that of one
+     * description per forecast, reasoning included, so that a full batch is not cut off mid-array,
+     * and the timeout grows with it.
+     */
+    @Bean
+    public ChatLanguageModel batchChatLanguageModel() {
+        return chatModel(MAX_TOKENS * batchMaxSize, TIMEOUT.plusSeconds(5L * batchMaxSize));
+    }
+
+    /**
+     * Same model and settings as {@link #chatLanguageModel()}, delivering the completion token by token.
+     */
+    @Bean
+    public StreamingChatLanguageModel streamingChatLanguageModel() {
+        return OpenAiStreamingChatModel.builder()
+                .apiKey(openRouterApiKey)
+                .baseUrl(openRouterBaseUrl)
+                .modelName(modelName)
+                .temperature(TEMPERATURE)
+                .topP(TOP_P)
+                .presencePenalty(PENALTY)
+                .frequencyPenalty(PENALTY)
+                .maxTokens(MAX_TOKENS)
+                .timeout(TIMEOUT)
+                .logRequests(true)
+                .logResponses(true)
+                .build();
+    }
+
+    private ChatLanguageModel chatModel(int maxTokens, Duration timeout) {
         return OpenAiChatModel.builder()
                 .apiKey(openRouterApiKey)
-                .modelName("openai/gpt-oss-20b:free")
-                .temperature(0.7)
-                .maxTokens(500)
-                .topP(0.9)
-                .presencePenalty(0.1)
-                .frequencyPenalty(0.1)
-                .timeout(java.time.Duration.ofSeconds(30))
+                .baseUrl(openRouterBaseUrl)
+                .modelName(modelName)
+                .temperature(TEMPERATURE)
+                .topP(TOP_P)
+                .presencePenalty(PENALTY)
+                .frequencyPenalty(PENALTY)
+                .maxTokens(maxTokens)
+                .timeout(timeout)
                 .logRequests(true)
                 .logResponses(true)
-                .baseUrl("https://openrouter.ai/api/v1")
                 .build();
     }
 }
@@ -0,0 +1,40 @@
+package com.example.sunrisesunsetforecast.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-upstream isolation settings under {@code forecast.resilience.upstreams.<name>}, for
+ * {@code nominatim}, {@code openMeteo} and {@code openRouter}. Upstreams not listed use the defaults.
+ * <p>
+ * At most {@code max-concurrent-calls} calls to an upstream are in flight; further calls are
+ * rejected at once rather than queued, so a slow upstream cannot hold every request thread. The
+ * circuit breaker opens when, over the last {@code sliding-window-size} calls, the share of failed
+ * calls or of calls slower than {@code slow-call-duration} reaches its threshold (in percent).
+ */
+@Data
+@ConfigurationProperties(prefix = "forecast.resilience")
+public class ResilienceProperties {
+
+    private Map<String, Spec> upstreams = new LinkedHashMap<>();
+
+    public Spec getSpec(String upstream) {
+        return upstreams.getOrDefault(upstream, new Spec());
+    }
+
+    @Data
+    public static class Spec {
+        private int maxConcurrentCalls = 10;
+        private int slidingWindowSize = 20;
+        private int minimumCalls = 10;
+        private double failureRateThreshold = 50;
+        private Duration slowCallDuration = Duration.ofSeconds(3);
+        private double slowCallRateThreshold = 80;
+        private Duration openDuration = Duration.ofSeconds(30);
+        private int halfOpenCalls = 3;
+    }
+}
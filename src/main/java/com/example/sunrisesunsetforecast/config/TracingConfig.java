@@ -0,0 +1,34 @@
+package com.example.sunrisesunsetforecast.config;
+
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Span exporter selected by {@code forecast.tracing.exporter}: {@code otlp} sends spans over OTLP/HTTP
+ * to {@code management.otlp.tracing.endpoint}, such as an OpenTelemetry collector, and {@code log}
+ * writes them to the application log. With neither, sampled requests still get trace ids and the
+ * caller's {@code traceparent} is still continued, but no span leaves the process. Spring Boot's own
+ * OTLP exporter, which would export to localhost whatever the setting, is excluded in application.yml.
+ */
+@Configuration
+public class TracingConfig {
+
+    private static final String EXPORTER = "forecast.tracing.exporter";
+
+    @Bean
+    @ConditionalOnProperty(name = EXPORTER, havingValue = "otlp")
+    public OtlpHttpSpanExporter otlpHttpSpanExporter(
+            @Value("${management.otlp.tracing.endpoint:http://localhost:4318/v1/traces}") String endpoint) {
+        return OtlpHttpSpanExporter.builder().setEndpoint(endpoint).build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = EXPORTER, havingValue = "log")
+    public LoggingSpanExporter loggingSpanExporter() {
+        return LoggingSpanExporter.create();
+    }
+}
@@ -4,6 +4,7 @@ import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
@@ -13,7 +14,12 @@ import reactor.netty.http.client.HttpClient;
 import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * HTTP client shared by the Nominatim and Open-Meteo clients. Connect and read timeouts apply to
+ * every call; concurrency limits and circuit breakers are kept per upstream, see {@link ResilienceProperties}.
+ */
 @Configuration
+@EnableConfigurationProperties(ResilienceProperties.class)
 public class WebClientConfig {
 
     @Value("${http.client.timeout:5000}")
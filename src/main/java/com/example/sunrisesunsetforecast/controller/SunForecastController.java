@@ -1,6 +1,17 @@
 package com.example.sunrisesunsetforecast.controller;
 
+import com.example.sunrisesunsetforecast.cache.CacheFreshness;
+import com.example.sunrisesunsetforecast.cache.ResponseBytesCache;
+import com.example.sunrisesunsetforecast.dto.BatchForecastRequest;
+import com.example.sunrisesunsetforecast.dto.BatchForecastResponse;
+import com.example.sunrisesunsetforecast.dto.ForecastMessage;
+import com.example.sunrisesunsetforecast.dto.ForecastToken;
+import com.example.sunrisesunsetforecast.dto.ForecastUpdate;
 import com.example.sunrisesunsetforecast.dto.SunForecastResponse;
+import com.example.sunrisesunsetforecast.exception.ErrorDetails;
+import com.example.sunrisesunsetforecast.popularity.CityPopularity;
+import com.example.sunrisesunsetforecast.service.BatchForecastService;
+import com.example.sunrisesunsetforecast.service.ReactiveSunForecastService;
 import com.example.sunrisesunsetforecast.service.SunForecastService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -9,13 +20,21 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
 
 @Tag(name = "Sun Forecast", description = "APIs for getting sunrise and sunset information")
 @RestController
@@ -25,6 +44,11 @@ import org.springframework.web.bind.annotation.*;
 public class SunForecastController {
 
     private final SunForecastService sunForecastService;
+    private final BatchForecastService batchForecastService;
+    private final ReactiveSunForecastService reactiveSunForecastService;
+    private final ResponseBytesCache responseBytesCache;
+    private final CacheFreshness cacheFreshness;
+    private final CityPopularity cityPopularity;
 
     @Operation(
         summary = "Get sunrise and sunset forecast for a city",
@@ -56,7 +80,7 @@ public class SunForecastController {
         )
     })
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<SunForecastResponse> getSunForecast(
+    public ResponseEntity<byte[]> getSunForecast(
             @Parameter(
                 name = "city",
                 description = "Name of the city to get forecast for",
@@ -66,8 +90,187 @@ public class SunForecastController {
             @RequestParam("city") 
             @NotBlank(message = "City name is required") 
             @Pattern(regexp = "^[a-zA-Z\\s-]+", message = "City name must contain only letters, spaces, and hyphens")
-            String city) {
+            String city,
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+            String acceptEncoding) {
+        
+        cityPopularity.record(city);
+        return encoded(city, sunForecastService.getSunForecast(city), acceptEncoding);
+    }
+
+    @Operation(
+        summary = "Get sunrise and sunset forecast for a city without holding a request thread",
+        description = "Same result as GET /api/sun-forecast, produced by the non-blocking pipeline. " +
+                "The servlet thread is released while upstream calls are in flight."
+    )
+    @ApiResponses({
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved forecast",
+            content = @Content(
+                mediaType = MediaType.APPLICATION_JSON_VALUE,
+                schema = @Schema(implementation = SunForecastResponse.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid city name provided",
+            content = @Content
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "Upstream service unavailable",
+            content = @Content
+        )
+    })
+    @GetMapping(path = "/async", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<byte[]>> getSunForecastAsync(
+            @Parameter(
+                name = "city",
+                description = "Name of the city to get forecast for",
+                required = true,
+                example = "London"
+            )
+            @RequestParam("city") 
+            @NotBlank(message = "City name is required") 
+            @Pattern(regexp = "^[a-zA-Z\\s-]+", message = "City name must contain only letters, spaces, and hyphens")
+            String city,
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+            String acceptEncoding) {
         
-        return ResponseEntity.ok(sunForecastService.getSunForecast(city));
+        cityPopularity.record(city);
+        return reactiveSunForecastService.getSunForecast(city).map(forecast -> encoded(city, forecast, acceptEncoding));
+    }
+
+    @Operation(
+        summary = "Stream the forecast for a city as Server-Sent Events",
+        description = "Sends a 'forecast' event with sun times and weather as soon as they are known, then " +
+                "'token' events carrying the AI message as the model generates it, then a 'description' event " +
+                "with the complete message. If the forecast cannot be produced, an 'error' event is sent instead."
+    )
+    @ApiResponses({
+        @ApiResponse(
+            responseCode = "200",
+            description = "Event stream of the forecast and its AI message",
+            content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid city name provided",
+            content = @Content
+        )
+    })
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamSunForecast(
+            @Parameter(
+                name = "city",
+                description = "Name of the city to get forecast for",
+                required = true,
+                example = "London"
+            )
+            @RequestParam("city") 
+            @NotBlank(message = "City name is required") 
+            @Pattern(regexp = "^[a-zA-Z\\s-]+", message = "City name must contain only letters, spaces, and hyphens")
+            String city) {
+
+        cityPopularity.record(city);
+        return reactiveSunForecastService.streamSunForecast(city)
+                .map(SunForecastController::toEvent)
+                // The response is already committed, so failures are reported in the stream
+                .onErrorResume(e -> Mono.just(ServerSentEvent.<Object>builder(
+                                new ErrorDetails(LocalDateTime.now(), e.getMessage(), "uri=/api/sun-forecast/stream"))
+                        .event("error")
+                        .build()));
+    }
+
+    @Operation(
+        summary = "Get sunrise and sunset forecasts for several cities",
+        description = "Returns a result or an error for each requested city, in request order. " +
+                "Cached cities are answered immediately and the others are fetched concurrently."
+    )
+    @ApiResponses({
+        @ApiResponse(
+            responseCode = "200",
+            description = "Batch processed; check each result for its own error",
+            content = @Content(
+                mediaType = MediaType.APPLICATION_JSON_VALUE,
+                schema = @Schema(implementation = BatchForecastResponse.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Empty batch, too many cities or an invalid city name",
+            content = @Content
+        )
+    })
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BatchForecastResponse> getSunForecasts(@Valid @RequestBody BatchForecastRequest request) {
+        request.getCities().forEach(cityPopularity::record);
+        return ResponseEntity.ok(batchForecastService.getSunForecasts(request.getCities()));
+    }
+
+    /**
+     * Writes the forecast's cached JSON bytes, gzip-compressed if the client accepts it, so that a
+     * cache hit is answered without serializing the forecast again. The response carries the
+     * content's ETag, so a matching If-None-Match gets 304 Not Modified, and may be cached by
+     * clients for as long as the forecast stays in our cache.
+     */
+    private ResponseEntity<byte[]> encoded(String city, SunForecastResponse forecast, String acceptEncoding) {
+        ResponseBytesCache.Encoded encoded = responseBytesCache.get(forecast);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(cacheControl(city, forecast));
+        if (!responseBytesCache.isGzipEnabled()) {
+            return response.eTag(encoded.jsonEtag()).body(encoded.json());
+        }
+        response.varyBy(HttpHeaders.ACCEPT_ENCODING);
+        byte[] gzip = acceptsGzip(acceptEncoding) ? encoded.gzip() : null;
+        if (gzip != null) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").eTag(encoded.gzipEtag()).body(gzip);
+        }
+        return response.eTag(encoded.jsonEtag()).body(encoded.json());
+    }
+
+    /**
+     * Lets clients and shared caches keep the forecast while it is fresh in our cache, then serve it
+     * stale while they revalidate for as long as we would. Forecasts that are not cached (e.g. with
+     * the template message) must be revalidated every time.
+     */
+    private CacheControl cacheControl(String city, SunForecastResponse forecast) {
+        return cacheFreshness.of("sunForecast", city.toLowerCase(), forecast)
+                .map(freshness -> CacheControl.maxAge(freshness.maxAge())
+                        .staleWhileRevalidate(freshness.staleWhileRevalidate())
+                        .cachePublic())
+                .orElseGet(CacheControl::noCache);
+    }
+
+    /**
+     * True if the Accept-Encoding header lists gzip (or *) without {@code q=0}.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                return parts.length < 2 || !parts[1].trim().matches("(?i)q=0(\\.0{0,3})?");
+            }
+        }
+        return false;
+    }
+
+    private static ServerSentEvent<Object> toEvent(ForecastUpdate update) {
+        return switch (update.getKind()) {
+            case FORECAST -> ServerSentEvent.<Object>builder(update.getForecast()).event("forecast").build();
+            case TOKEN -> ServerSentEvent.<Object>builder(new ForecastToken(update.getToken())).event("token").build();
+            case DESCRIPTION -> ServerSentEvent.<Object>builder(
+                            new ForecastMessage(update.getForecast().getCity(), update.getForecast().getEnhancedMessage()))
+                    .event("description")
+                    .build();
+        };
     }
 }
@@ -0,0 +1,23 @@
+package com.example.sunrisesunsetforecast.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO representing the outcome for one city of a batch request: either a forecast or an error.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchForecastItem {
+    private String city;
+    private SunForecastResponse forecast;
+    private String error;
+    private boolean cached;
+    private long latencyMs;
+}
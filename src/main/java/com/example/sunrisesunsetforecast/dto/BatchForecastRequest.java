@@ -0,0 +1,29 @@
+package com.example.sunrisesunsetforecast.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO representing a request for the forecasts of several cities at once.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchForecastRequest {
+
+    public static final int MAX_CITIES = 500;
+
+    @NotEmpty(message = "At least one city is required")
+    @Size(max = MAX_CITIES, message = "At most " + MAX_CITIES + " cities can be requested at once")
+    private List<
+            @NotBlank(message = "City name is required")
+            @Pattern(regexp = "^[a-zA-Z\\s-]+", message = "City name must contain only letters, spaces, and hyphens")
+            String> cities;
+}
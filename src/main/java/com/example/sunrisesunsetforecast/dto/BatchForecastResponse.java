@@ -0,0 +1,22 @@
+package com.example.sunrisesunsetforecast.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO representing the per-city results of a batch request, in request order.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchForecastResponse {
+    private List<BatchForecastItem> results;
+    private int succeeded;
+    private int failed;
+    private long latencyMs;
+}
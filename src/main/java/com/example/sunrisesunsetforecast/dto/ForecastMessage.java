@@ -0,0 +1,18 @@
+package com.example.sunrisesunsetforecast.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * AI message for a forecast, sent after the forecast itself on the streaming endpoint.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ForecastMessage {
+    private String city;
+    private String enhancedMessage;
+}
@@ -0,0 +1,16 @@
+package com.example.sunrisesunsetforecast.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A chunk of the AI message on the streaming endpoint. Sent as JSON so that leading spaces and
+ * line breaks in the chunk survive the event stream framing.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ForecastToken {
+    private String token;
+}
@@ -0,0 +1,33 @@
+package com.example.sunrisesunsetforecast.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One step of a streamed forecast: the forecast without its AI message, a chunk of the message
+ * as the chat model produces it, or the complete forecast once the message is finished.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ForecastUpdate {
+
+    public enum Kind { FORECAST, TOKEN, DESCRIPTION }
+
+    private Kind kind;
+    private SunForecastResponse forecast;
+    private String token;
+
+    public static ForecastUpdate forecast(SunForecastResponse forecast) {
+        return new ForecastUpdate(Kind.FORECAST, forecast, null);
+    }
+
+    public static ForecastUpdate token(String token) {
+        return new ForecastUpdate(Kind.TOKEN, null, token);
+    }
+
+    public static ForecastUpdate description(SunForecastResponse forecast) {
+        return new ForecastUpdate(Kind.DESCRIPTION, forecast, null);
+    }
+}
@@ -1,24 +1,32 @@
 package com.example.sunrisesunsetforecast.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 
 /**
  * DTO representing the sunrise and sunset forecast response.
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class SunForecastResponse {
     private String city;
+
+    /**
+     * The day forecast, which the sunrise and sunset need not fall on in the location's time zone.
+     */
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+    private LocalDate date;
     
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
     private OffsetDateTime sunrise;
@@ -33,4 +41,12 @@ public class SunForecastResponse {
     
     @Builder.Default
     private String weatherCondition = null;
+
+    /**
+     * Set when the enhanced message is the template used in place of the chat model, or when the
+     * location's time zone was not known and the times are given in UTC. Such responses are not
+     * cached, so a later request picks up the generated message and the local times.
+     */
+    @JsonIgnore
+    private boolean templateMessage;
 }
@@ -0,0 +1,42 @@
+package com.example.sunrisesunsetforecast.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Logs the DEBUG lines of requests that {@link RequestSummaryFilter} sampled from the loggers under
+ * {@code packageName}, whatever their level, and drops DEBUG and TRACE events of requests it did
+ * not sample. It runs before the message is formatted, so a dropped line costs an MDC lookup.
+ * <p>
+ * The sampling decision is in the MDC on the request thread and on the executor threads its work
+ * is handed to (see {@link LoggingContext#wrap(Runnable)}). Events logged anywhere else, such as
+ * on the reactive pipeline's event loops, the Open-Meteo coalescer or background cache refreshes,
+ * are left to the logger levels, which keep the package at INFO. Configured in {@code logback-spring.xml}.
+ */
+public class DiagnosticSamplingFilter extends TurboFilter {
+
+    private String packageName = "com.example.sunrisesunsetforecast";
+
+    public void setPackageName(String packageName) {
+        this.packageName = packageName;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level.isGreaterOrEqual(Level.INFO)) {
+            return FilterReply.NEUTRAL;
+        }
+        String sampled = MDC.get(RequestSummaryFilter.SAMPLED);
+        if ("false".equals(sampled)) {
+            return FilterReply.DENY;
+        }
+        if ("true".equals(sampled) && level.isGreaterOrEqual(Level.DEBUG) && logger.getName().startsWith(packageName)) {
+            return FilterReply.ACCEPT;
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
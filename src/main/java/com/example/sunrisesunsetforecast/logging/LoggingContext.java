@@ -0,0 +1,38 @@
+package com.example.sunrisesunsetforecast.logging;
+
+import org.slf4j.MDC;
+
+import java.util.Map;
+
+/**
+ * Carries the MDC, and with it the request id and sampling decision set by
+ * {@link RequestSummaryFilter}, to the threads that run a request's work.
+ */
+public final class LoggingContext {
+
+    private LoggingContext() {
+    }
+
+    /**
+     * Runs {@code task} with the MDC of the submitting thread; for use as a task decorator.
+     */
+    public static Runnable wrap(Runnable task) {
+        Map<String, String> context = MDC.getCopyOfContextMap();
+        if (context == null || context.isEmpty()) {
+            return task;
+        }
+        return () -> {
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            MDC.setContextMap(context);
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    MDC.setContextMap(previous);
+                } else {
+                    MDC.clear();
+                }
+            }
+        };
+    }
+}
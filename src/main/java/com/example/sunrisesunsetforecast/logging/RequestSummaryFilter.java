@@ -0,0 +1,106 @@
+package com.example.sunrisesunsetforecast.logging;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs one INFO line per API request, with the method, path, city, status and duration as
+ * key-value pairs, and decides whether the request's verbose diagnostics are logged: a fraction
+ * {@code forecast.logging.diagnostics.sample-rate} of requests is sampled, and
+ * {@link DiagnosticSamplingFilter} drops the DEBUG lines of the others.
+ * <p>
+ * The request id, taken from {@code X-Request-Id} or generated, and the sampling decision are put
+ * in the MDC while the request runs on its thread. Asynchronous requests are summarised when they
+ * complete.
+ */
+@Slf4j
+@Component
+public class RequestSummaryFilter extends OncePerRequestFilter {
+
+    public static final String REQUEST_ID = "requestId";
+    public static final String SAMPLED = "sampled";
+    static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+    private final double sampleRate;
+
+    public RequestSummaryFilter(@Value("${forecast.logging.diagnostics.sample-rate:1.0}") double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        String requestId = request.getHeader(REQUEST_ID_HEADER);
+        if (!StringUtils.hasText(requestId)) {
+            requestId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        }
+        MDC.put(REQUEST_ID, requestId);
+        MDC.put(SAMPLED, Boolean.toString(sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate));
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            MDC.remove(REQUEST_ID);
+            MDC.remove(SAMPLED);
+            if (!failed && request.isAsyncStarted()) {
+                String id = requestId;
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        summarise(request, response.getStatus(), id, start);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                summarise(request, failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus(), requestId, start);
+            }
+        }
+    }
+
+    private static void summarise(HttpServletRequest request, int status, String requestId, long start) {
+        LoggingEventBuilder line = log.atInfo()
+                .addKeyValue("method", request.getMethod())
+                .addKeyValue("path", request.getRequestURI());
+        String city = request.getParameter("city");
+        if (city != null) {
+            line = line.addKeyValue("city", city);
+        }
+        line.addKeyValue("status", status)
+                .addKeyValue("durationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .addKeyValue(REQUEST_ID, requestId)
+                .log("Request completed");
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.sunrisesunsetforecast.popularity;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * How often each city is asked for, counted in a {@link CountMinSketch} so that memory stays fixed
+ * however many distinct names are requested, and the {@code forecast.popularity.tracked} most
+ * requested cities by those counts, kept in a min-heap. A request for a city that is not tracked
+ * only touches the sketch unless its count beats the least requested tracked city.
+ * <p>
+ * Cities are counted case-insensitively; the spelling of the latest request is kept for display
+ * and lookups.
+ */
+@Component
+public class CityPopularity {
+
+    private final CountMinSketch sketch;
+    private final int tracked;
+    private final Map<String, Candidate> candidates = new HashMap<>();
+    private final PriorityQueue<Candidate> leastRequested = new PriorityQueue<>(Comparator.comparingLong(Candidate::count));
+    // Count a city must exceed to be tracked, 0 until the heap is full
+    private volatile long threshold;
+
+    public CityPopularity(@Value("${forecast.popularity.tracked:100}") int tracked,
+                          @Value("${forecast.popularity.sketch-width:4096}") int sketchWidth,
+                          @Value("${forecast.popularity.sketch-depth:4}") int sketchDepth) {
+        this.sketch = new CountMinSketch(sketchWidth, sketchDepth);
+        this.tracked = tracked;
+    }
+
+    public void record(String city) {
+        String key = city.toLowerCase();
+        long count = sketch.add(key);
+        // A tracked city's estimate only grows between decays, so it always gets past this
+        if (count <= threshold) {
+            return;
+        }
+        synchronized (this) {
+            Candidate candidate = candidates.remove(key);
+            if (candidate != null) {
+                leastRequested.remove(candidate);
+            } else if (candidates.size() >= tracked) {
+                if (count <= leastRequested.peek().count()) {
+                    return;
+                }
+                candidates.remove(leastRequested.poll().key());
+            }
+            Candidate updated = new Candidate(key, city, count);
+            candidates.put(key, updated);
+            leastRequested.add(updated);
+            updateThreshold();
+        }
+    }
+
+    /**
+     * The {@code n} most requested cities, most requested first.
+     */
+    public synchronized List<String> top(int n) {
+        List<Candidate> ranked = new ArrayList<>(candidates.values());
+        ranked.sort(Comparator.comparingLong(Candidate::count).reversed());
+        return ranked.stream().limit(n).map(Candidate::city).toList();
+    }
+
+    public long estimate(String city) {
+        return sketch.estimate(city.toLowerCase());
+    }
+
+    /**
+     * Halves every count, so that popularity follows what is requested lately rather than ever.
+     */
+    public synchronized void decay() {
+        sketch.halve();
+        List<Candidate> halved = candidates.values().stream()
+                .map(candidate -> new Candidate(candidate.key(), candidate.city(), candidate.count() / 2))
+                .toList();
+        candidates.clear();
+        leastRequested.clear();
+        for (Candidate candidate : halved) {
+            candidates.put(candidate.key(), candidate);
+            leastRequested.add(candidate);
+        }
+        updateThreshold();
+    }
+
+    private void updateThreshold() {
+        threshold = candidates.size() < tracked ? 0 : leastRequested.peek().count();
+    }
+
+    private record Candidate(String key, String city, long count) {
+    }
+}
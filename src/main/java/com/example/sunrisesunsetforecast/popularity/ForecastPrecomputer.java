@@ -0,0 +1,168 @@
+package com.example.sunrisesunsetforecast.popularity;
+
+import com.example.sunrisesunsetforecast.cache.CacheRefreshRegistry;
+import com.example.sunrisesunsetforecast.cache.CacheRefresher;
+import com.example.sunrisesunsetforecast.dto.SunForecastResponse;
+import com.example.sunrisesunsetforecast.resilience.UpstreamGuards;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Computes tomorrow's forecast for the {@code forecast.precompute.top-n} most requested cities
+ * (see {@link CityPopularity}) ahead of demand, on the {@code forecast.precompute.cron} schedule.
+ * Forecasts are always for tomorrow, so every cached one turns stale when the date changes; run
+ * just after midnight, this replaces them before the first request of the day has to wait for
+ * the upstreams and the chat model. Cities whose cached forecast is already for tomorrow are skipped.
+ * <p>
+ * Forecasts are computed the way refreshes are, on the {@code precomputeExecutor} with
+ * {@code forecast.precompute.concurrency} at a time, so the job goes through the same bulkheads and rate limiter as requests and holds at most
+ * that many of their permits. Once a circuit breaker opens the remaining cities are left to be
+ * computed on demand. Counts are halved after each run.
+ */
+@Slf4j
+@Component
+public class ForecastPrecomputer {
+
+    static final String PRECOMPUTED_METRIC = "forecast.precompute.cities";
+
+    private static final String CACHE = "sunForecast";
+    private static final List<String> UPSTREAMS = List.of(UpstreamGuards.NOMINATIM, UpstreamGuards.OPEN_METEO,
+            UpstreamGuards.OPEN_ROUTER);
+
+    private final CityPopularity popularity;
+    private final CacheManager cacheManager;
+    private final CacheRefreshRegistry refreshRegistry;
+    private final UpstreamGuards upstreamGuards;
+    private final Executor executor;
+    private final int topN;
+    private final Clock clock;
+    private final Map<Outcome, Counter> outcomes = new EnumMap<>(Outcome.class);
+
+    public ForecastPrecomputer(CityPopularity popularity, CacheManager cacheManager, CacheRefreshRegistry refreshRegistry,
+                               UpstreamGuards upstreamGuards, MeterRegistry meterRegistry,
+                               @Qualifier("precomputeExecutor") Executor executor,
+                               @Value("${forecast.precompute.top-n:50}") int topN) {
+        this(popularity, cacheManager, refreshRegistry, upstreamGuards, meterRegistry, executor, topN, Clock.systemDefaultZone());
+    }
+
+    ForecastPrecomputer(CityPopularity popularity, CacheManager cacheManager, CacheRefreshRegistry refreshRegistry,
+                        UpstreamGuards upstreamGuards, MeterRegistry meterRegistry, Executor executor, int topN, Clock clock) {
+        this.popularity = popularity;
+        this.cacheManager = cacheManager;
+        this.refreshRegistry = refreshRegistry;
+        this.upstreamGuards = upstreamGuards;
+        this.executor = executor;
+        this.topN = topN;
+        this.clock = clock;
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, Counter.builder(PRECOMPUTED_METRIC)
+                    .description("Popular cities handled by the forecast precompute job, by outcome")
+                    .tag("outcome", outcome.tag())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Scheduled(cron = "${forecast.precompute.cron:-}", zone = "${forecast.precompute.zone:}")
+    public void precompute() {
+        List<String> cities = popularity.top(topN);
+        Cache cache = cacheManager.getCache(CACHE);
+        CacheRefresher<Object> refresher = refreshRegistry.get(CACHE);
+        if (cities.isEmpty() || cache == null || refresher == null) {
+            return;
+        }
+        LocalDate forecastDate = LocalDate.now(clock).plusDays(1); // Tomorrow's date, as the pipeline computes it
+        log.info("Precomputing the {} forecast for {} popular cities", forecastDate, cities.size());
+
+        Map<Outcome, Integer> counts = new EnumMap<>(Outcome.class);
+        List<CompletableFuture<Outcome>> results = new ArrayList<>();
+        try {
+            for (String city : cities) {
+                results.add(CompletableFuture.supplyAsync(() -> precompute(city, cache, refresher, forecastDate), executor));
+            }
+            for (CompletableFuture<Outcome> result : results) {
+                Outcome outcome = result.get();
+                outcomes.get(outcome).increment();
+                counts.merge(outcome, 1, Integer::sum);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            results.forEach(result -> result.cancel(false));
+            return;
+        } catch (ExecutionException | RejectedExecutionException e) {
+            log.error("Forecast precompute stopped", e instanceof ExecutionException ? e.getCause() : e);
+            results.forEach(result -> result.cancel(false));
+        }
+        log.info("Precomputed forecasts: {}", counts);
+        popularity.decay();
+    }
+
+    private Outcome precompute(String city, Cache cache, CacheRefresher<Object> refresher, LocalDate forecastDate) {
+        String key = city.toLowerCase();
+        SunForecastResponse previous = cache.get(key, SunForecastResponse.class);
+        if (previous != null && forecastDate.equals(previous.getDate())) {
+            return Outcome.CURRENT;
+        }
+        if (anyCircuitOpen()) {
+            return Outcome.DEFERRED;
+        }
+        try {
+            Object forecast = refresher.refresh(city, previous);
+            if (forecast instanceof SunForecastResponse computed && !computed.isTemplateMessage()) {
+                cache.put(key, computed);
+                return Outcome.COMPUTED;
+            }
+            return Outcome.FAILED;
+        } catch (RuntimeException e) {
+            log.warn("Could not precompute the forecast for {}: {}", city, e.getMessage());
+            return Outcome.FAILED;
+        }
+    }
+
+    private boolean anyCircuitOpen() {
+        return UPSTREAMS.stream()
+                .anyMatch(upstream -> upstreamGuards.get(upstream).getCircuitBreaker().getState() == CircuitBreaker.State.OPEN);
+    }
+
+    enum Outcome {
+        /**
+         * Computed and cached.
+         */
+        COMPUTED,
+        /**
+         * Already cached for tomorrow.
+         */
+        CURRENT,
+        /**
+         * Left for later because an upstream's circuit is open.
+         */
+        DEFERRED,
+        /**
+         * The computation failed, or only produced the template message.
+         */
+        FAILED;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.sunrisesunsetforecast.resilience;
+
+import com.example.sunrisesunsetforecast.exception.ExternalServiceException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead and circuit breaker in front of one upstream. A call first takes one of the upstream's
+ * concurrency permits, then asks the circuit breaker; if either says no, it fails at once with an
+ * {@link ExternalServiceException} and the upstream is not called.
+ * <p>
+ * A call the guard lets through is observed as {@code forecast.upstream.calls}, tagged with the
+ * upstream and the outcome, from the permit to the outcome: a timer, and a span named after the
+ * upstream, a child of the current observation.
+ */
+public class UpstreamGuard {
+
+    private final String name;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final ObservationRegistry observationRegistry;
+
+    UpstreamGuard(String name, CircuitBreaker circuitBreaker, Bulkhead bulkhead, ObservationRegistry observationRegistry) {
+        this.name = name;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.observationRegistry = observationRegistry;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public int getAvailableConcurrentCalls() {
+        return bulkhead.getMetrics().getAvailableConcurrentCalls();
+    }
+
+    /**
+     * Runs a blocking call to the upstream.
+     */
+    public <T> T call(Supplier<T> call) {
+        Permit permit = acquire();
+        try {
+            T result = call.get();
+            permit.succeeded();
+            return result;
+        } catch (RuntimeException | Error e) {
+            permit.failed(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Guards a call to the upstream made when the returned {@link Mono} is subscribed to.
+     */
+    public <T> Mono<T> guard(Mono<T> call) {
+        return Mono.deferContextual(context -> {
+            Permit permit = acquire(context.getOrDefault(ObservationThreadLocalAccessor.KEY, null));
+            return call
+                    .contextWrite(inner -> inner.put(ObservationThreadLocalAccessor.KEY, permit.observation))
+                    .doOnSuccess(value -> permit.succeeded())
+                    .doOnError(permit::failed)
+                    .doFinally(signal -> {
+                        if (signal == SignalType.CANCEL) {
+                            permit.abandoned();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Takes a permit for a call whose outcome is reported later, e.g. through a callback. Exactly
+     * one of the permit's methods must be called when the call ends.
+     *
+     * @throws ExternalServiceException if the bulkhead is full or the circuit is open
+     */
+    public Permit acquire() {
+        return acquire(observationRegistry.getCurrentObservation());
+    }
+
+    private Permit acquire(Observation parent) {
+        if (!bulkhead.tryAcquirePermission()) {
+            throw new ExternalServiceException(name + " has too many calls in flight, try again later");
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.releasePermission();
+            throw new ExternalServiceException(name + " is unavailable (circuit open), try again later");
+        }
+        return new Permit(Observation.createNotStarted(UpstreamGuards.CALLS_METRIC, observationRegistry)
+                .contextualName(name)
+                .lowCardinalityKeyValue("upstream", name)
+                .parentObservation(parent)
+                .start());
+    }
+
+    public final class Permit {
+
+        private final long start = System.nanoTime();
+        private final AtomicBoolean done = new AtomicBoolean();
+        private final Observation observation;
+
+        private Permit(Observation observation) {
+            this.observation = observation;
+        }
+
+        public void succeeded() {
+            if (done.compareAndSet(false, true)) {
+                long duration = System.nanoTime() - start;
+                circuitBreaker.onSuccess(duration, TimeUnit.NANOSECONDS);
+                bulkhead.onComplete();
+                observation.lowCardinalityKeyValue("outcome", "success").stop();
+            }
+        }
+
+        public void failed(Throwable error) {
+            if (done.compareAndSet(false, true)) {
+                long duration = System.nanoTime() - start;
+                circuitBreaker.onError(duration, TimeUnit.NANOSECONDS, error);
+                bulkhead.onComplete();
+                observation.error(error);
+                observation.lowCardinalityKeyValue("outcome", "failure").stop();
+            }
+        }
+
+        /**
+         * The call was not made or its outcome is unknown, e.g. it was cancelled. It counts neither
+         * way for the circuit breaker.
+         */
+        public void abandoned() {
+            if (done.compareAndSet(false, true)) {
+                circuitBreaker.releasePermission();
+                bulkhead.onComplete();
+                observation.lowCardinalityKeyValue("outcome", "cancelled").stop();
+            }
+        }
+    }
+}
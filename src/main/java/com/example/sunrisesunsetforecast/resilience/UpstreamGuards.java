@@ -0,0 +1,94 @@
+package com.example.sunrisesunsetforecast.resilience;
+
+import com.example.sunrisesunsetforecast.config.ResilienceProperties;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link UpstreamGuard} per upstream, created on first use from {@link ResilienceProperties}
+ * with a resilience4j count-based circuit breaker and semaphore bulkhead named after the upstream.
+ * Their state is published by resilience4j's Micrometer bindings ({@code resilience4j.circuitbreaker.*}
+ * and {@code resilience4j.bulkhead.*}, tagged with the upstream {@code name}). Each guard also
+ * publishes its rejected calls by reason, and observes the calls it lets through
+ * ({@code forecast.upstream.calls}, by outcome; percentile histograms are configured in application.yml).
+ */
+@Component
+public class UpstreamGuards {
+
+    public static final String NOMINATIM = "nominatim";
+    public static final String OPEN_METEO = "openMeteo";
+    public static final String OPEN_ROUTER = "openRouter";
+
+    static final String REJECTED_CALLS_METRIC = "forecast.upstream.rejected";
+    static final String CALLS_METRIC = "forecast.upstream.calls";
+
+    private final ResilienceProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+    private final CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.ofDefaults();
+    private final BulkheadRegistry bulkheads = BulkheadRegistry.ofDefaults();
+    private final Map<String, UpstreamGuard> guards = new ConcurrentHashMap<>();
+
+    public UpstreamGuards(ResilienceProperties properties, MeterRegistry meterRegistry,
+                          ObservationRegistry observationRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.observationRegistry = observationRegistry;
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meterRegistry);
+    }
+
+    public UpstreamGuard get(String upstream) {
+        return guards.computeIfAbsent(upstream, this::create);
+    }
+
+    private UpstreamGuard create(String upstream) {
+        ResilienceProperties.Spec spec = properties.getSpec(upstream);
+        CircuitBreaker circuitBreaker = circuitBreakers.circuitBreaker(upstream, CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(spec.getSlidingWindowSize())
+                .minimumNumberOfCalls(spec.getMinimumCalls())
+                .failureRateThreshold((float) spec.getFailureRateThreshold())
+                .slowCallDurationThreshold(spec.getSlowCallDuration())
+                .slowCallRateThreshold((float) spec.getSlowCallRateThreshold())
+                .waitDurationInOpenState(spec.getOpenDuration())
+                .permittedNumberOfCallsInHalfOpenState(spec.getHalfOpenCalls())
+                // Half-open once the wait is over, so that the open state seen by the precompute job ends too
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .build());
+        // Calls beyond the limit are rejected rather than queued
+        Bulkhead bulkhead = bulkheads.bulkhead(upstream, BulkheadConfig.custom()
+                .maxConcurrentCalls(spec.getMaxConcurrentCalls())
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+
+        Counter circuitOpen = rejections(upstream, "circuit_open");
+        circuitBreaker.getEventPublisher().onCallNotPermitted(event -> circuitOpen.increment());
+        Counter bulkheadFull = rejections(upstream, "bulkhead_full");
+        bulkhead.getEventPublisher().onCallRejected(event -> bulkheadFull.increment());
+
+        return new UpstreamGuard(upstream, circuitBreaker, bulkhead, observationRegistry);
+    }
+
+    private Counter rejections(String upstream, String reason) {
+        return Counter.builder(REJECTED_CALLS_METRIC)
+                .description("Calls to the upstream rejected without being made")
+                .tag("upstream", upstream)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.sunrisesunsetforecast.service;
+
+import com.example.sunrisesunsetforecast.dto.BatchForecastResponse;
+
+import java.util.List;
+
+public interface BatchForecastService {
+    BatchForecastResponse getSunForecasts(List<String> cities);
+}
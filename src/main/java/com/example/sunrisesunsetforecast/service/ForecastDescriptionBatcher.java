@@ -0,0 +1,98 @@
+package com.example.sunrisesunsetforecast.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Collects description requests that arrive within a short window and generates them with one
+ * chat model call. The first caller of a batch waits until the window closes or the batch reaches
+ * the maximum size, then runs it on behalf of everyone in it; the results are handed back by position.
+ */
+@Slf4j
+class ForecastDescriptionBatcher<T> {
+
+    private final Function<List<T>, List<String>> batchGenerator;
+    private final Duration window;
+    private final int maxBatchSize;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Batch<T> pending;
+
+    ForecastDescriptionBatcher(Function<List<T>, List<String>> batchGenerator, Duration window, int maxBatchSize) {
+        this.batchGenerator = batchGenerator;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Blocks until the batch containing {@code input} has been generated.
+     *
+     * @return the message, or null if the batch produced none for this input
+     */
+    String submit(T input) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Batch<T> batch;
+        boolean leader = false;
+        lock.lock();
+        try {
+            if (pending == null) {
+                pending = new Batch<>();
+                leader = true;
+            }
+            batch = pending;
+            batch.inputs.add(input);
+            batch.callers.add(result);
+            if (batch.inputs.size() >= maxBatchSize) {
+                pending = null;
+                batch.full.countDown();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (leader) {
+            try {
+                batch.full.await(window.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            lock.lock();
+            try {
+                if (pending == batch) {
+                    pending = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+            send(batch);
+        }
+        return result.join();
+    }
+
+    private void send(Batch<T> batch) {
+        int size = batch.inputs.size();
+        log.debug("Generating {} batched forecast descriptions", size);
+        try {
+            List<String> texts = batchGenerator.apply(batch.inputs);
+            for (int i = 0; i < size; i++) {
+                batch.callers.get(i).complete(texts.get(i));
+            }
+        } catch (RuntimeException e) {
+            batch.callers.forEach(caller -> caller.completeExceptionally(e));
+        }
+    }
+
+    private static final class Batch<T> {
+        private final List<T> inputs = new ArrayList<>();
+        private final List<CompletableFuture<String>> callers = new ArrayList<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+    }
+}
@@ -1,50 +1,454 @@
 package com.example.sunrisesunsetforecast.service;
 
+import com.example.sunrisesunsetforecast.exception.ExternalServiceException;
+import com.example.sunrisesunsetforecast.resilience.UpstreamGuard;
+import com.example.sunrisesunsetforecast.resilience.UpstreamGuards;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
 import dev.langchain4j.model.chat.ChatLanguageModel;
-import lombok.RequiredArgsConstructor;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class ForecastDescriptionService {
 
+    static final String DESCRIPTION_CACHE = "forecastDescriptions";
+
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    /**
+     * Sunrise and sunset are rounded to this before prompting, so nearby days and requests share a message.
+     */
+    @Value("${forecast.description.time-granularity:5m}")
+    private Duration timeGranularity = Duration.ofMinutes(5);
+
+    /**
+     * Temperatures are rounded to a multiple of this many degrees before prompting.
+     */
+    @Value("${forecast.description.temperature-step:2.0}")
+    private double temperatureStep = 2.0;
+
+    @Value("${forecast.description.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${forecast.description.batch.window:100ms}")
+    private Duration batchWindow = Duration.ofMillis(100);
+
+    @Value("${forecast.description.batch.max-size:10}")
+    private int batchMaxSize = 10;
+
+    /**
+     * How long a request waits for the chat model before it is answered with the template. The
+     * generation carries on in the background and stores its message for the next request.
+     * Zero waits for the model. With batching, the batch window comes on top of it.
+     */
+    @Value("${forecast.description.latency-budget:0ms}")
+    private Duration latencyBudget = Duration.ZERO;
+
     private final ChatLanguageModel chatLanguageModel;
+    private final ChatLanguageModel batchChatLanguageModel;
+    private final StreamingChatLanguageModel streamingChatLanguageModel;
+    private final CacheManager cacheManager;
+    private final ObjectMapper objectMapper;
+    private final Executor descriptionExecutor;
+    private final UpstreamGuards upstreamGuards;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private ForecastDescriptionBatcher<Description> batcher;
+
+    /**
+     * A message for a forecast, or a chunk of one while it is streamed, and whether it is the
+     * template used in place of the chat model.
+     */
+    public record ForecastDescription(String text, boolean template) {
+    }
+
+    public ForecastDescriptionService(ChatLanguageModel chatLanguageModel,
+                                      @Qualifier("batchChatLanguageModel") ChatLanguageModel batchChatLanguageModel,
+                                      StreamingChatLanguageModel streamingChatLanguageModel,
+                                      CacheManager cacheManager,
+                                      ObjectMapper objectMapper,
+                                      @Qualifier("descriptionExecutor") Executor descriptionExecutor,
+                                      UpstreamGuards upstreamGuards) {
+        this.chatLanguageModel = chatLanguageModel;
+        this.batchChatLanguageModel = batchChatLanguageModel;
+        this.streamingChatLanguageModel = streamingChatLanguageModel;
+        this.cacheManager = cacheManager;
+        this.objectMapper = objectMapper;
+        this.descriptionExecutor = descriptionExecutor;
+        this.upstreamGuards = upstreamGuards;
+    }
+
+    @PostConstruct
+    void init() {
+        if (batchEnabled) {
+            batcher = new ForecastDescriptionBatcher<>(this::generateBatch, batchWindow, batchMaxSize);
+            log.info("Batching forecast descriptions within {} ms, up to {} per prompt",
+                    batchWindow.toMillis(), batchMaxSize);
+        }
+    }
 
-    public String generateForecastDescription(String location, LocalDate date, 
-                                           LocalTime sunrise, LocalTime sunset, 
+    /**
+     * Returns a description of the day, reusing a stored message for the same location, date and
+     * rounded inputs. Messages are generated from the rounded inputs, so a stored message is exact
+     * for every request that maps to it. The template used when the chat model fails is not stored.
+     * With batching enabled, misses arriving together are generated with one prompt.
+     */
+    public String generateForecastDescription(String location, LocalDate date,
+                                           LocalTime sunrise, LocalTime sunset,
                                            double temperature, String weatherCondition) {
-        
-        String prompt = String.format("""
-            You are a friendly weather assistant. Generate a short, engaging weather forecast description.
-            
-            Location: %s
-            Date: %s
-            Sunrise: %s
-            Sunset: %s
-            Temperature: %.1f°C
-            Conditions: %s
-            
-            Please provide a 2-3 sentence description that's:
+        return describeForecast(location, date, sunrise, sunset, temperature, weatherCondition).text();
+    }
+
+    /**
+     * Same as {@link #generateForecastDescription}, but also tells whether the template was used,
+     * either because the chat model failed or because it did not answer within the latency budget.
+     * Concurrent misses for the same message share one generation.
+     */
+    public ForecastDescription describeForecast(String location, LocalDate date,
+                                                LocalTime sunrise, LocalTime sunset,
+                                                double temperature, String weatherCondition) {
+        Description description = new Description(location, date, roundTime(sunrise), roundTime(sunset),
+                roundTemperature(temperature), weatherCondition);
+        Cache cache = cacheManager.getCache(DESCRIPTION_CACHE);
+        String cached = cache != null ? cache.get(description.key(), String.class) : null;
+        if (cached != null) {
+            log.debug("Reusing forecast description for {}", description.key());
+            return new ForecastDescription(cached, false);
+        }
+
+        String text;
+        try {
+            CompletableFuture<String> generation = generate(description, cache);
+            text = latencyBudget.isZero() || latencyBudget.isNegative()
+                    ? generation.get()
+                    : generation.get(budget().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.info("Forecast description for {} not ready within {} ms, answering with the template",
+                    description.key(), budget().toMillis());
+            text = null;
+        } catch (ExecutionException e) {
+            log.error("Error generating forecast description with OpenRouter", e.getCause());
+            text = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            text = null;
+        }
+        if (text == null) {
+            return new ForecastDescription(fallbackDescription(location, sunrise, sunset, temperature, weatherCondition), true);
+        }
+        return new ForecastDescription(text, false);
+    }
+
+    /**
+     * The latency budget for the chat model itself: time spent waiting for a batch to fill is not counted.
+     */
+    private Duration budget() {
+        return batcher != null ? latencyBudget.plus(batchWindow) : latencyBudget;
+    }
+
+    /**
+     * Starts generating the message on the description executor, or joins the generation already
+     * running for the same key. The message is stored when it is done, whether or not anyone still waits for it.
+     */
+    private CompletableFuture<String> generate(Description description, Cache cache) {
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(description.key(), created);
+        if (running != null) {
+            return running;
+        }
+        try {
+            descriptionExecutor.execute(() -> {
+                try {
+                    String text = batcher != null ? batcher.submit(description) : prompt(description.prompt()).trim();
+                    if (text != null && cache != null) {
+                        cache.put(description.key(), text);
+                    }
+                    created.complete(text);
+                } catch (Throwable e) {
+                    created.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(description.key(), created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(description.key(), created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    /**
+     * Streaming variant of {@link #generateForecastDescription}: emits the message token by token as
+     * the chat model produces it, and stores the finished text when the stream completes. A stored
+     * message is emitted as a single chunk. If the model fails before the first token, the template
+     * is emitted instead, marked as such so that callers do not keep it; a failure after that ends
+     * the stream with an error.
+     */
+    public Flux<ForecastDescription> streamForecastDescription(String location, LocalDate date,
+                                                  LocalTime sunrise, LocalTime sunset,
+                                                  double temperature, String weatherCondition) {
+        Description description = new Description(location, date, roundTime(sunrise), roundTime(sunset),
+                roundTemperature(temperature), weatherCondition);
+        Cache cache = cacheManager.getCache(DESCRIPTION_CACHE);
+        String cached = cache != null ? cache.get(description.key(), String.class) : null;
+        if (cached != null) {
+            log.debug("Reusing forecast description for {}", description.key());
+            return Flux.just(new ForecastDescription(cached, false));
+        }
+
+        return Flux.create(sink -> {
+            UpstreamGuard.Permit permit;
+            try {
+                permit = upstreamGuards.get(UpstreamGuards.OPEN_ROUTER).acquire();
+            } catch (ExternalServiceException e) {
+                log.warn("Not streaming forecast description: {}", e.getMessage());
+                sink.next(new ForecastDescription(fallbackDescription(location, sunrise, sunset, temperature, weatherCondition), true));
+                sink.complete();
+                return;
+            }
+            sink.onCancel(permit::abandoned);
+
+            StreamingResponseHandler<AiMessage> handler = new StreamingResponseHandler<>() {
+                private final AtomicBoolean started = new AtomicBoolean();
+
+                @Override
+                public void onNext(String token) {
+                    started.set(true);
+                    sink.next(new ForecastDescription(token, false));
+                }
+
+                @Override
+                public void onComplete(Response<AiMessage> response) {
+                    permit.succeeded();
+                    if (cache != null && response != null && response.content() != null) {
+                        cache.put(description.key(), response.content().text().trim());
+                    }
+                    sink.complete();
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    permit.failed(error);
+                    log.error("Error streaming forecast description with OpenRouter", error);
+                    if (started.get()) {
+                        sink.error(new ExternalServiceException("Forecast description stream failed: " + error.getMessage(), error));
+                    } else {
+                        sink.next(new ForecastDescription(fallbackDescription(location, sunrise, sunset, temperature, weatherCondition), true));
+                        sink.complete();
+                    }
+                }
+            };
+            try {
+                streamingChatLanguageModel.generate(description.prompt(), handler);
+            } catch (RuntimeException e) {
+                handler.onError(e);
+            }
+        });
+    }
+
+    /**
+     * Calls the chat model through the OpenRouter bulkhead and circuit breaker.
+     */
+    private String prompt(String prompt) {
+        return prompt(chatLanguageModel, prompt);
+    }
+
+    private String prompt(ChatLanguageModel model, String prompt) {
+        return upstreamGuards.get(UpstreamGuards.OPEN_ROUTER).call(() -> model.generate(prompt));
+    }
+
+    /**
+     * Generates the messages of a batch with one prompt asking for a JSON array. Entries the
+     * response does not provide, or all of them if it cannot be parsed, are generated one by one;
+     * null is returned for those that still fail. A failure of the batched call itself is thrown.
+     */
+    private List<String> generateBatch(List<Description> descriptions) {
+        // Requests that round the same are generated once
+        Map<String, Description> distinct = new LinkedHashMap<>();
+        descriptions.forEach(description -> distinct.putIfAbsent(description.key(), description));
+        List<Description> prompted = new ArrayList<>(distinct.values());
+
+        Map<String, String> texts = new HashMap<>();
+        if (prompted.size() > 1) {
+            List<String> parsed = parseBatch(prompt(batchChatLanguageModel, batchPrompt(prompted)), prompted.size());
+            for (int i = 0; i < parsed.size(); i++) {
+                if (parsed.get(i) != null && !parsed.get(i).isBlank()) {
+                    texts.put(prompted.get(i).key(), parsed.get(i).trim());
+                }
+            }
+        }
+        for (Description description : prompted) {
+            if (texts.containsKey(description.key())) {
+                continue;
+            }
+            try {
+                texts.put(description.key(), prompt(description.prompt()).trim());
+            } catch (Exception e) {
+                log.error("Error generating forecast description with OpenRouter", e);
+            }
+        }
+        return descriptions.stream().map(description -> texts.get(description.key())).toList();
+    }
+
+    /**
+     * Reads the JSON array of messages out of a batch response, tolerating text around it. A
+     * response cut off inside the array, as when the model runs out of tokens, still yields the
+     * messages it completed.
+     *
+     * @return the messages by position, or an empty list if the response is not an array of at most the expected size
+     */
+    private List<String> parseBatch(String response, int expected) {
+        int start = response != null ? response.indexOf('[') : -1;
+        if (start < 0) {
+            log.warn("Batched forecast description response is not a JSON array, generating one by one");
+            return List.of();
+        }
+        List<String> texts = new ArrayList<>();
+        try (JsonParser parser = objectMapper.createParser(response.substring(start))) {
+            parser.nextToken();
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.VALUE_STRING) {
+                texts.add(parser.getText());
+            }
+            if (token != JsonToken.END_ARRAY || texts.size() != expected) {
+                log.warn("Batched forecast description response has {} messages for {} forecasts, generating one by one",
+                        texts.size(), expected);
+                return List.of();
+            }
+            return texts;
+        } catch (JsonEOFException e) {
+            log.warn("Batched forecast description response is cut off after {} of {} messages, generating the rest one by one",
+                    texts.size(), expected);
+            return texts.size() <= expected ? texts : List.of();
+        } catch (IOException e) {
+            log.warn("Could not parse batched forecast description response, generating one by one: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static String batchPrompt(List<Description> descriptions) {
+        StringBuilder forecasts = new StringBuilder();
+        for (int i = 0; i < descriptions.size(); i++) {
+            forecasts.append(i + 1).append(". ").append(descriptions.get(i).facts()).append('\n');
+        }
+        return String.format("""
+            You are a friendly weather assistant. Generate a short, engaging weather forecast description for each of these %d forecasts.
+
+            %s
+            For each forecast, provide a 2-3 sentence description that's:
             - Conversational and friendly
             - Includes an interesting fact or tip about the day
             - Mentions any notable weather conditions
             - Keeps it positive and engaging
-            
-            Format the response as plain text, no markdown or special formatting.
-            """, location, date, sunrise, sunset, temperature, weatherCondition);
-            
-        try {
-            return chatLanguageModel.generate(prompt).trim();
-        } catch (Exception e) {
-            log.error("Error generating forecast description with OpenRouter", e);
-            return String.format("In %s, the sun will rise at %s and set at %s. " +
-                              "Expect %s with temperatures around %.1f°C. Have a wonderful day!",
-                    location, sunrise, sunset, weatherCondition.toLowerCase(), temperature);
+
+            Respond with only a JSON array of %d strings, one plain text description per forecast in the order given, no markdown.
+            """, descriptions.size(), forecasts, descriptions.size());
+    }
+
+    private static String fallbackDescription(String location, LocalTime sunrise, LocalTime sunset,
+                                              double temperature, String weatherCondition) {
+        // Sun times are missing on days the sun does not rise or set, such as in polar summer
+        StringBuilder text = new StringBuilder("In ").append(location);
+        if (sunrise != null && sunset != null) {
+            text.append(String.format(", the sun will rise at %s and set at %s. Expect ", sunrise, sunset));
+        } else if (sunrise != null) {
+            text.append(String.format(", the sun will rise at %s. Expect ", sunrise));
+        } else if (sunset != null) {
+            text.append(String.format(", the sun will set at %s. Expect ", sunset));
+        } else {
+            text.append(", expect ");
+        }
+        if (weatherCondition != null) {
+            text.append(weatherCondition.toLowerCase()).append(" with ");
+        }
+        return text.append(String.format("temperatures around %.1f°C. Have a wonderful day!", temperature)).toString();
+    }
+
+    private LocalTime roundTime(LocalTime time) {
+        if (time == null) {
+            return null;
+        }
+        long step = Math.max(1, timeGranularity.toSeconds());
+        long rounded = Math.round(time.toSecondOfDay() / (double) step) * step;
+        return LocalTime.ofSecondOfDay(rounded % SECONDS_PER_DAY);
+    }
+
+    private double roundTemperature(double temperature) {
+        if (temperatureStep <= 0) {
+            return temperature;
+        }
+        return Math.round(temperature / temperatureStep) * temperatureStep;
+    }
+
+    /**
+     * Rounded inputs of a description, which both key the cache and fill the prompt.
+     */
+    private record Description(String location, LocalDate date, LocalTime sunrise, LocalTime sunset,
+                               double temperature, String weatherCondition) {
+
+        String key() {
+            return String.join("|", location.toLowerCase(Locale.ROOT), String.valueOf(date),
+                    String.valueOf(sunrise), String.valueOf(sunset),
+                    String.valueOf(temperature), String.valueOf(weatherCondition).toLowerCase(Locale.ROOT));
+        }
+
+        String facts() {
+            return String.format("Location: %s; Date: %s; Sunrise: %s; Sunset: %s; Temperature: %.1f°C; Conditions: %s",
+                    location, date, sunrise, sunset, temperature, weatherCondition);
+        }
+
+        String prompt() {
+            return String.format("""
+                You are a friendly weather assistant. Generate a short, engaging weather forecast description.
+
+                Location: %s
+                Date: %s
+                Sunrise: %s
+                Sunset: %s
+                Temperature: %.1f°C
+                Conditions: %s
+
+                Please provide a 2-3 sentence description that's:
+                - Conversational and friendly
+                - Includes an interesting fact or tip about the day
+                - Mentions any notable weather conditions
+                - Keeps it positive and engaging
+
+                Format the response as plain text, no markdown or special formatting.
+                """, location, date, sunrise, sunset, temperature, weatherCondition);
         }
     }
 }
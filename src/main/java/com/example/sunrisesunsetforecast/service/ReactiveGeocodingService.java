@@ -0,0 +1,11 @@
+package com.example.sunrisesunsetforecast.service;
+
+import com.example.sunrisesunsetforecast.model.Coordinates;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link GeocodingService}. Results are not cached by implementations.
+ */
+public interface ReactiveGeocodingService {
+    Mono<Coordinates> lookupCoordinates(String city);
+}
@@ -0,0 +1,20 @@
+package com.example.sunrisesunsetforecast.service;
+
+import com.example.sunrisesunsetforecast.dto.ForecastUpdate;
+import com.example.sunrisesunsetforecast.dto.SunForecastResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link SunForecastService}.
+ */
+public interface ReactiveSunForecastService {
+    Mono<SunForecastResponse> getSunForecast(String city);
+
+    /**
+     * Emits the forecast as soon as sun times and weather are known, without the AI message, then
+     * the message token by token as the chat model streams it, then the complete forecast. A cached
+     * forecast is emitted complete, followed by its description.
+     */
+    Flux<ForecastUpdate> streamSunForecast(String city);
+}
@@ -0,0 +1,29 @@
+package com.example.sunrisesunsetforecast.service;
+
+/**
+ * Computes sunrise and sunset instants locally from coordinates and date.
+ * Implementations are pure functions of their arguments and must be safe to call concurrently.
+ */
+public interface SunTimesCalculator {
+
+    /**
+     * Returned when the sun does not cross the horizon on the given day (polar day or polar night).
+     */
+    long NO_EVENT = Long.MIN_VALUE;
+
+    /**
+     * @param latitude  latitude in degrees, north positive
+     * @param longitude longitude in degrees, east positive
+     * @param epochDay  the calendar day at the location, as returned by {@link java.time.LocalDate#toEpochDay()}
+     * @return sunrise as epoch seconds, or {@link #NO_EVENT}
+     */
+    long sunriseEpochSecond(double latitude, double longitude, long epochDay);
+
+    /**
+     * @param latitude  latitude in degrees, north positive
+     * @param longitude longitude in degrees, east positive
+     * @param epochDay  the calendar day at the location, as returned by {@link java.time.LocalDate#toEpochDay()}
+     * @return sunset as epoch seconds, or {@link #NO_EVENT}
+     */
+    long sunsetEpochSecond(double latitude, double longitude, long epochDay);
+}
@@ -0,0 +1,145 @@
+package com.example.sunrisesunsetforecast.service.impl;
+
+import com.example.sunrisesunsetforecast.dto.BatchForecastItem;
+import com.example.sunrisesunsetforecast.dto.BatchForecastResponse;
+import com.example.sunrisesunsetforecast.dto.SunForecastResponse;
+import com.example.sunrisesunsetforecast.service.BatchForecastService;
+import com.example.sunrisesunsetforecast.service.SunForecastService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Serves cached cities straight from the {@code sunForecast} cache and fans the misses out
+ * concurrently on the batch executor. Each city succeeds or fails on its own; cities that are
+ * not done when the batch timeout expires are reported as timed out. Lookups already running
+ * then carry on and fill the cache for the next request, those still queued are dropped.
+ * Cities the executor has no room for are reported as failed at once.
+ */
+@Slf4j
+@Service
+public class BatchForecastServiceImpl implements BatchForecastService {
+
+    private final SunForecastService sunForecastService;
+    private final CacheManager cacheManager;
+    private final Executor batchForecastExecutor;
+
+    @Value("${forecast.batch.timeout:10s}")
+    private Duration timeout;
+
+    public BatchForecastServiceImpl(SunForecastService sunForecastService,
+                                    CacheManager cacheManager,
+                                    @Qualifier("batchForecastExecutor") Executor batchForecastExecutor) {
+        this.sunForecastService = sunForecastService;
+        this.cacheManager = cacheManager;
+        this.batchForecastExecutor = batchForecastExecutor;
+    }
+
+    @Override
+    public BatchForecastResponse getSunForecasts(List<String> cities) {
+        long batchStart = System.nanoTime();
+        Cache cache = cacheManager.getCache("sunForecast");
+
+        // Cities repeated within a batch are resolved once, keyed like the sunForecast cache
+        Map<String, CompletableFuture<BatchForecastItem>> lookups = new LinkedHashMap<>();
+        for (String city : cities) {
+            lookups.computeIfAbsent(city.toLowerCase(), key -> {
+                SunForecastResponse cached = cache != null ? cache.get(key, SunForecastResponse.class) : null;
+                if (cached != null) {
+                    return CompletableFuture.completedFuture(BatchForecastItem.builder()
+                            .city(city)
+                            .forecast(cached)
+                            .cached(true)
+                            .build());
+                }
+                return lookup(city, batchStart);
+            });
+        }
+
+        List<BatchForecastItem> results = new ArrayList<>(cities.size());
+        int failed = 0;
+        for (String city : cities) {
+            BatchForecastItem item = lookups.get(city.toLowerCase()).join();
+            if (!item.getCity().equals(city)) {
+                item = item.toBuilder().city(city).build();
+            }
+            if (item.getError() != null) {
+                failed++;
+            }
+            results.add(item);
+        }
+
+        long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batchStart);
+        log.info("Batch of {} cities completed in {} ms with {} failures", cities.size(), latencyMs, failed);
+        return BatchForecastResponse.builder()
+                .results(results)
+                .succeeded(results.size() - failed)
+                .failed(failed)
+                .latencyMs(latencyMs)
+                .build();
+    }
+
+    private CompletableFuture<BatchForecastItem> lookup(String city, long batchStart) {
+        CompletableFuture<BatchForecastItem> lookup = new CompletableFuture<>();
+        try {
+            batchForecastExecutor.execute(() -> {
+                // Timed out while queued: nobody is waiting for it any more
+                if (lookup.isDone()) {
+                    return;
+                }
+                try {
+                    lookup.complete(fetch(city));
+                } catch (Throwable e) {
+                    lookup.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(failure(city, e, batchStart));
+        }
+        return lookup.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> failure(city, e, batchStart));
+    }
+
+    private BatchForecastItem fetch(String city) {
+        long start = System.nanoTime();
+        SunForecastResponse forecast = sunForecastService.getSunForecast(city);
+        return BatchForecastItem.builder()
+                .city(city)
+                .forecast(forecast)
+                .latencyMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .build();
+    }
+
+    private BatchForecastItem failure(String city, Throwable e, long batchStart) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        String error;
+        if (cause instanceof TimeoutException) {
+            error = "Timed out after " + timeout.toMillis() + " ms";
+        } else if (cause instanceof RejectedExecutionException) {
+            error = "Too many forecasts in progress, try again later";
+        } else {
+            error = cause.getMessage();
+        }
+        log.warn("Batch forecast failed for city: {}: {}", city, error);
+        return BatchForecastItem.builder()
+                .city(city)
+                .error(error)
+                .latencyMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batchStart))
+                .build();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.sunrisesunsetforecast.service.impl;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Observes the stages of the forecast pipeline as {@code forecast.stage}, tagged with the stage and
+ * its outcome: a timer (percentile histograms are configured in application.yml) and a span named
+ * after the stage, a child of the current observation. A stage is timed as the pipeline sees it,
+ * cache hits included: geocoding includes waiting for the Nominatim rate limiter, and the
+ * description includes the latency budget given to the chat model.
+ */
+@Component
+public class ForecastStageTimers {
+
+    static final String STAGE_METRIC = "forecast.stage";
+
+    private final ObservationRegistry observationRegistry;
+
+    public ForecastStageTimers(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    /**
+     * Runs a blocking stage.
+     */
+    public <T> T record(Stage stage, Supplier<T> call) {
+        Observation observation = observation(stage).start();
+        String outcome = "failure";
+        try (Observation.Scope scope = observation.openScope()) {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } catch (RuntimeException | Error e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.lowCardinalityKeyValue("outcome", outcome).stop();
+        }
+    }
+
+    /**
+     * Observes a stage from subscription to its value, completion, error or cancellation. The
+     * observation stops before the value is passed on, so it is complete once the caller has it.
+     */
+    public <T> Mono<T> record(Stage stage, Mono<T> call) {
+        return Mono.deferContextual(context -> {
+            Observation observation = observation(stage)
+                    .parentObservation(context.getOrDefault(ObservationThreadLocalAccessor.KEY, null))
+                    .start();
+            AtomicBoolean stopped = new AtomicBoolean();
+            Consumer<String> stop = outcome -> {
+                if (stopped.compareAndSet(false, true)) {
+                    observation.lowCardinalityKeyValue("outcome", outcome).stop();
+                }
+            };
+            return call
+                    .contextWrite(inner -> inner.put(ObservationThreadLocalAccessor.KEY, observation))
+                    .doOnSuccess(value -> stop.accept("success"))
+                    .doOnError(error -> {
+                        observation.error(error);
+                        stop.accept("failure");
+                    })
+                    .doOnCancel(() -> stop.accept("cancelled"));
+        });
+    }
+
+    private Observation observation(Stage stage) {
+        return Observation.createNotStarted(STAGE_METRIC, observationRegistry)
+                .contextualName(stage.tag())
+                .lowCardinalityKeyValue("stage", stage.tag());
+    }
+
+    public enum Stage {
+        /**
+         * City name to coordinates.
+         */
+        GEOCODING,
+        /**
+         * Open-Meteo forecast, fetched and decoded.
+         */
+        WEATHER,
+        /**
+         * Sun times computed and the forecast put together.
+         */
+        ASSEMBLY,
+        /**
+         * Forecast message from the chat model, or the template.
+         */
+        DESCRIPTION;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.sunrisesunsetforecast.service.impl;
+
+import com.example.sunrisesunsetforecast.model.Coordinates;
+import com.example.sunrisesunsetforecast.service.GeocodingService;
+import com.example.sunrisesunsetforecast.service.ReactiveGeocodingService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Resolves city names from an offline, memory-mapped GeoNames index and falls back to Nominatim
+ * for names the gazetteer does not know. The index is built once from the dump and only rebuilt
+ * when the dump is newer, so a normal boot just maps the existing file.
+ */
+@Slf4j
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "geocoding.gazetteer", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class GazetteerGeocodingService implements GeocodingService, ReactiveGeocodingService {
+
+    @Value("${geocoding.gazetteer.source:}")
+    private String source;
+
+    @Value("${geocoding.gazetteer.index-path}")
+    private String indexPath;
+
+    @Value("${geocoding.gazetteer.include-alternate-names:false}")
+    private boolean includeAlternateNames;
+
+    private final NominatimGeocodingService nominatimGeocodingService;
+
+    private volatile GazetteerIndex index;
+
+    @PostConstruct
+    void loadIndex() {
+        Path indexFile = Paths.get(indexPath);
+        try {
+            if (!source.isBlank() && isStale(Paths.get(source), indexFile)) {
+                log.info("Building gazetteer index {} from {}", indexFile, source);
+                Files.createDirectories(indexFile.toAbsolutePath().getParent());
+                int names = GazetteerIndexBuilder.build(Paths.get(source), indexFile, includeAlternateNames);
+                log.info("Gazetteer index built with {} names", names);
+            }
+            if (Files.exists(indexFile)) {
+                index = GazetteerIndex.open(indexFile);
+                log.info("Mapped gazetteer index {} with {} names", indexFile, index.size());
+            } else {
+                log.warn("No gazetteer index at {}, all lookups will use Nominatim", indexFile);
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.error("Could not load gazetteer index " + indexFile + ", all lookups will use Nominatim", e);
+        }
+    }
+
+    @Override
+    public Coordinates getCoordinates(String city) {
+        Coordinates coordinates = findInIndex(city);
+        return coordinates != null ? coordinates : nominatimGeocodingService.getCoordinates(city);
+    }
+
+    @Override
+    public Mono<Coordinates> lookupCoordinates(String city) {
+        Coordinates coordinates = findInIndex(city);
+        return coordinates != null ? Mono.just(coordinates) : nominatimGeocodingService.lookupCoordinates(city);
+    }
+
+    private Coordinates findInIndex(String city) {
+        GazetteerIndex current = index;
+        Coordinates coordinates = current != null ? current.find(city) : null;
+        if (coordinates != null) {
+            log.debug("Resolved {} from gazetteer", city);
+        } else {
+            log.debug("City {} not in gazetteer, falling back to Nominatim", city);
+        }
+        return coordinates;
+    }
+
+    private static boolean isStale(Path sourceFile, Path indexFile) throws IOException {
+        if (!Files.exists(sourceFile)) {
+            return false;
+        }
+        return !Files.exists(indexFile)
+                || Files.getLastModifiedTime(sourceFile).compareTo(Files.getLastModifiedTime(indexFile)) > 0;
+    }
+}
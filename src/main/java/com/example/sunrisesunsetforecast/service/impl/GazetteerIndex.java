@@ -0,0 +1,116 @@
+package com.example.sunrisesunsetforecast.service.impl;
+
+import com.example.sunrisesunsetforecast.model.Coordinates;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Read-only, memory-mapped city name index produced by {@link GazetteerIndexBuilder}.
+ * <p>
+ * File layout (big-endian):
+ * <pre>
+ * int   magic
+ * int   version
+ * int   entryCount
+ * int[] entryOffsets      sorted by key bytes
+ * entries:
+ *   short  keyLength
+ *   byte[] key            normalized UTF-8 name
+ *   double latitude
+ *   double longitude
+ * </pre>
+ * Lookups binary search the offsets and compare keys in place, so nothing is copied onto the heap.
+ */
+public final class GazetteerIndex {
+
+    static final int MAGIC = 0x475A5431; // "GZT1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+
+    private final ByteBuffer buffer;
+    private final int entryCount;
+
+    private GazetteerIndex(ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("Not a gazetteer index or unsupported version");
+        }
+        this.buffer = buffer;
+        this.entryCount = buffer.getInt(8);
+    }
+
+    /**
+     * Maps the index file read-only. The mapping stays valid after the channel is closed.
+     */
+    public static GazetteerIndex open(Path indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            return new GazetteerIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * @return the coordinates of the best match for the name, or null if the name is not indexed
+     */
+    public Coordinates find(String name) {
+        byte[] key = normalize(name).getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = entryCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entryOffset = buffer.getInt(HEADER_SIZE + mid * Integer.BYTES);
+            int cmp = compareKey(entryOffset, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                int valueOffset = entryOffset + Short.BYTES + key.length;
+                return new Coordinates(buffer.getDouble(valueOffset), buffer.getDouble(valueOffset + Double.BYTES));
+            }
+        }
+        return null;
+    }
+
+    private int compareKey(int entryOffset, byte[] key) {
+        int keyLength = buffer.getShort(entryOffset) & 0xFFFF;
+        int keyStart = entryOffset + Short.BYTES;
+        int common = Math.min(keyLength, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = (buffer.get(keyStart + i) & 0xFF) - (key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return keyLength - key.length;
+    }
+
+    /**
+     * Canonical form used for both indexing and lookup: trimmed, lower case, single spaces.
+     */
+    static String normalize(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    normalized.append(' ');
+                    pendingSpace = false;
+                }
+                normalized.append(c);
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+}
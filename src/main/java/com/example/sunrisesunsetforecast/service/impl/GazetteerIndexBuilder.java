@@ -0,0 +1,107 @@
+package com.example.sunrisesunsetforecast.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@link GazetteerIndex} file from a GeoNames city dump
+ * (tab-separated, e.g. cities15000.txt from https://download.geonames.org/export/dump/).
+ * When several places share a name, the most populous one wins, which matches what users usually mean.
+ */
+@Slf4j
+public final class GazetteerIndexBuilder {
+
+    private static final int COLUMN_NAME = 1;
+    private static final int COLUMN_ASCII_NAME = 2;
+    private static final int COLUMN_ALTERNATE_NAMES = 3;
+    private static final int COLUMN_LATITUDE = 4;
+    private static final int COLUMN_LONGITUDE = 5;
+    private static final int COLUMN_POPULATION = 14;
+
+    private GazetteerIndexBuilder() {
+    }
+
+    /**
+     * Builds the index and atomically replaces {@code indexFile} with it.
+     *
+     * @return the number of indexed names
+     */
+    public static int build(Path source, Path indexFile, boolean includeAlternateNames) throws IOException {
+        Map<String, Place> places = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split("\t", -1);
+                if (columns.length <= COLUMN_POPULATION) {
+                    continue;
+                }
+                try {
+                    Place place = new Place(
+                            Double.parseDouble(columns[COLUMN_LATITUDE]),
+                            Double.parseDouble(columns[COLUMN_LONGITUDE]),
+                            columns[COLUMN_POPULATION].isEmpty() ? 0 : Long.parseLong(columns[COLUMN_POPULATION]));
+                    addName(places, columns[COLUMN_NAME], place);
+                    addName(places, columns[COLUMN_ASCII_NAME], place);
+                    if (includeAlternateNames) {
+                        for (String alternateName : columns[COLUMN_ALTERNATE_NAMES].split(",")) {
+                            addName(places, alternateName, place);
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    log.warn("Skipping malformed gazetteer line: {}", line);
+                }
+            }
+        }
+
+        List<byte[]> keys = new ArrayList<>(places.size());
+        places.keySet().forEach(key -> keys.add(key.getBytes(StandardCharsets.UTF_8)));
+        keys.sort(Arrays::compareUnsigned);
+
+        Path tempFile = Files.createTempFile(indexFile.toAbsolutePath().getParent(), "gazetteer", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(GazetteerIndex.MAGIC);
+            out.writeInt(GazetteerIndex.VERSION);
+            out.writeInt(keys.size());
+
+            int offset = GazetteerIndex.HEADER_SIZE + keys.size() * Integer.BYTES;
+            for (byte[] key : keys) {
+                out.writeInt(offset);
+                offset += Short.BYTES + key.length + 2 * Double.BYTES;
+            }
+            for (byte[] key : keys) {
+                Place place = places.get(new String(key, StandardCharsets.UTF_8));
+                out.writeShort(key.length);
+                out.write(key);
+                out.writeDouble(place.latitude());
+                out.writeDouble(place.longitude());
+            }
+        }
+        Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return keys.size();
+    }
+
+    private static void addName(Map<String, Place> places, String name, Place place) {
+        String key = GazetteerIndex.normalize(name);
+        if (key.isEmpty() || key.getBytes(StandardCharsets.UTF_8).length > Short.MAX_VALUE) {
+            return;
+        }
+        places.merge(key, place, (existing, candidate) ->
+                candidate.population() > existing.population() ? candidate : existing);
+    }
+
+    private record Place(double latitude, double longitude, long population) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.sunrisesunsetforecast.service.impl;
+
+import com.example.sunrisesunsetforecast.service.SunTimesCalculator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Solar position based sunrise/sunset calculator following the NOAA sunrise equation.
+ * The event time is refined once using the sun's position at the first estimate,
+ * which keeps the error well under a minute outside the polar circles.
+ * Uses primitive math only and allocates nothing per call.
+ */
+@Component
+public class NoaaSunTimesCalculator implements SunTimesCalculator {
+
+    /** Epoch day of 2000-01-01; J2000.0 is noon of that day. */
+    private static final double J2000_EPOCH_DAY = 10957.5;
+    private static final double SECONDS_PER_DAY = 86400.0;
+
+    /** Apparent altitude of the sun's upper limb at rise/set, including atmospheric refraction. */
+    private static final double SIN_HORIZON = Math.sin(Math.toRadians(-0.833));
+    private static final double SIN_OBLIQUITY = Math.sin(Math.toRadians(23.4397));
+    private static final int REFINEMENTS = 2;
+
+    @Override
+    public long sunriseEpochSecond(double latitude, double longitude, long epochDay) {
+        return eventEpochSecond(latitude, longitude, epochDay, -1.0);
+    }
+
+    @Override
+    public long sunsetEpochSecond(double latitude, double longitude, long epochDay) {
+        return eventEpochSecond(latitude, longitude, epochDay, 1.0);
+    }
+
+    /**
+     * @param direction -1 for sunrise, +1 for sunset
+     */
+    private long eventEpochSecond(double latitude, double longitude, long epochDay, double direction) {
+        // Mean solar noon at the given longitude, in days since J2000.0
+        double meanNoon = epochDay + 0.5 - J2000_EPOCH_DAY - longitude / 360.0;
+        double sinLatitude = Math.sin(Math.toRadians(latitude));
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+
+        double event = meanNoon;
+        for (int i = 0; i < REFINEMENTS; i++) {
+            double meanAnomaly = Math.toRadians(normalizeDegrees(357.5291 + 0.98560028 * event));
+            double center = 1.9148 * Math.sin(meanAnomaly)
+                    + 0.0200 * Math.sin(2 * meanAnomaly)
+                    + 0.0003 * Math.sin(3 * meanAnomaly);
+            double eclipticLongitude = Math.toRadians(
+                    normalizeDegrees(Math.toDegrees(meanAnomaly) + center + 180.0 + 102.9372));
+
+            double transit = meanNoon
+                    + 0.0053 * Math.sin(meanAnomaly)
+                    - 0.0069 * Math.sin(2 * eclipticLongitude);
+
+            double sinDeclination = Math.sin(eclipticLongitude) * SIN_OBLIQUITY;
+            double cosDeclination = Math.sqrt(1.0 - sinDeclination * sinDeclination);
+            double cosHourAngle = (SIN_HORIZON - sinLatitude * sinDeclination) / (cosLatitude * cosDeclination);
+            if (cosHourAngle < -1.0 || cosHourAngle > 1.0) {
+                return NO_EVENT;
+            }
+
+            event = transit + direction * Math.toDegrees(Math.acos(cosHourAngle)) / 360.0;
+        }
+
+        return Math.round((event + J2000_EPOCH_DAY) * SECONDS_PER_DAY);
+    }
+
+    private static double normalizeDegrees(double degrees) {
+        double normalized = degrees % 360.0;
+        return normalized < 0 ? normalized + 360.0 : normalized;
+    }
+}
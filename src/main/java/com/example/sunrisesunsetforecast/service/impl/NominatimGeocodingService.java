@@ -1,8 +1,18 @@
 package com.example.sunrisesunsetforecast.service.impl;
 
+import com.example.sunrisesunsetforecast.cache.BackgroundRefresh;
+import com.example.sunrisesunsetforecast.cache.CacheRefreshRegistry;
+import com.example.sunrisesunsetforecast.cache.SingleFlight;
 import com.example.sunrisesunsetforecast.exception.ExternalServiceException;
 import com.example.sunrisesunsetforecast.model.Coordinates;
+import com.example.sunrisesunsetforecast.resilience.UpstreamGuards;
 import com.example.sunrisesunsetforecast.service.GeocodingService;
+import com.example.sunrisesunsetforecast.service.ReactiveGeocodingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,15 +20,17 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class NominatimGeocodingService implements GeocodingService {
+public class NominatimGeocodingService implements GeocodingService, ReactiveGeocodingService {
 
     @Value("${geocoding.api.base-url:https://nominatim.openstreetmap.org}")
     private String baseUrl;
@@ -26,51 +38,119 @@ public class NominatimGeocodingService implements GeocodingService {
     @Value("${geocoding.user-agent:SunriseSunsetForecast/1.0}")
     private String userAgent;
 
+    @Value("${geocoding.rate-limit.permits-per-second:1.0}")
+    private double permitsPerSecond;
+
+    @Value("${geocoding.rate-limit.burst:1}")
+    private int burst;
+
+    @Value("${geocoding.rate-limit.max-queued:100}")
+    private int maxQueued;
+
+    @Value("${geocoding.rate-limit.interactive-max-wait:3s}")
+    private Duration interactiveMaxWait;
+
+    @Value("${geocoding.rate-limit.background-max-wait:5m}")
+    private Duration backgroundMaxWait;
+
     private final WebClient webClient;
+    private final SingleFlight singleFlight;
+    private final CacheRefreshRegistry cacheRefreshRegistry;
+    private final UpstreamGuards upstreamGuards;
+    private final MeterRegistry meterRegistry;
+
+    private NominatimRequestScheduler scheduler;
+
+    @PostConstruct
+    void init() {
+        // Refreshes are background work and give way to lookups someone is waiting for
+        cacheRefreshRegistry.<Coordinates>register("cityCoordinates",
+                (key, previous) -> fetchCoordinates(key, NominatimRequestScheduler.Priority.BACKGROUND));
+        scheduler = new NominatimRequestScheduler(permitsPerSecond, burst, maxQueued,
+                interactiveMaxWait, backgroundMaxWait,
+                reason -> Counter.builder("forecast.nominatim.rejected")
+                        .description("Nominatim requests rejected by the rate limiter instead of being sent")
+                        .tag("reason", reason)
+                        .register(meterRegistry)
+                        .increment());
+        Gauge.builder("forecast.nominatim.queued", scheduler, NominatimRequestScheduler::queued)
+                .description("Nominatim requests waiting for the rate limiter")
+                .register(meterRegistry);
+        log.info("Sending at most {} Nominatim requests per second (burst {}), queueing up to {}",
+                permitsPerSecond, burst, maxQueued);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
 
     @Override
     @Cacheable(value = "cityCoordinates", key = "#city.toLowerCase()")
     public Coordinates getCoordinates(String city) {
-        log.info("Looking up coordinates for city: {}", city);
-        
+        // Misses of refreshes of other caches, such as forecasts, are background work too.
+        // Concurrent misses for the same city share one upstream call
+        NominatimRequestScheduler.Priority priority = BackgroundRefresh.isActive()
+                ? NominatimRequestScheduler.Priority.BACKGROUND
+                : NominatimRequestScheduler.Priority.INTERACTIVE;
+        return singleFlight.execute("cityCoordinates", city.toLowerCase(), () -> fetchCoordinates(city, priority));
+    }
+
+    private Coordinates fetchCoordinates(String city, NominatimRequestScheduler.Priority priority) {
         try {
-            return webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .scheme("https")
-                            .host("nominatim.openstreetmap.org")
-                            .path("/search")
-                            .queryParam("q", city)
-                            .queryParam("format", "json")
-                            .queryParam("limit", 1)
-                            .build())
-                    .accept(MediaType.APPLICATION_JSON)
-                    .header("User-Agent", userAgent)
-                    .retrieve()
-                    .bodyToMono(List.class)
-                    .flatMap(response -> {
-                        if (response == null || response.isEmpty()) {
-                            return Mono.error(new ExternalServiceException("No coordinates found for city: " + city));
-                        }
-                        
-                        try {
-                            Map<String, Object> location = (Map<String, Object>) response.get(0);
-                            double lat = Double.parseDouble(location.get("lat").toString());
-                            double lon = Double.parseDouble(location.get("lon").toString());
-                            return Mono.just(new Coordinates(lat, lon));
-                        } catch (Exception e) {
-                            log.error("Error parsing geocoding response for city: " + city, e);
-                            return Mono.error(new ExternalServiceException("Error parsing geocoding response"));
-                        }
-                    })
-                    .onErrorResume(e -> {
-                        log.error("Error in geocoding service for city: " + city, e);
-                        return Mono.error(new ExternalServiceException("Error getting coordinates: " + e.getMessage()));
-                    })
-                    .block();
-                    
+            return lookupCoordinates(city, priority).contextCapture().block();
         } catch (Exception e) {
             log.error("Unexpected error in getCoordinates for city: " + city, e);
             throw new ExternalServiceException("Failed to get coordinates: " + e.getMessage(), e);
         }
     }
+
+    @Override
+    public Mono<Coordinates> lookupCoordinates(String city) {
+        return lookupCoordinates(city, NominatimRequestScheduler.Priority.INTERACTIVE);
+    }
+
+    private Mono<Coordinates> lookupCoordinates(String city, NominatimRequestScheduler.Priority priority) {
+        log.debug("Looking up coordinates for city: {}", city);
+        
+        Mono<List> search = webClient.get()
+                .uri(UriComponentsBuilder.fromHttpUrl(baseUrl)
+                        .path("/search")
+                        .queryParam("q", city)
+                        .queryParam("format", "json")
+                        .queryParam("limit", 1)
+                        .encode()
+                        .build()
+                        .toUri())
+                .accept(MediaType.APPLICATION_JSON)
+                .header("User-Agent", userAgent)
+                .retrieve()
+                .bodyToMono(List.class);
+
+        // Paced by the rate limiter first; an empty result is a successful call as far as the
+        // circuit breaker is concerned
+        Mono<List> guarded = upstreamGuards.get(UpstreamGuards.NOMINATIM).guard(search);
+        return (scheduler != null ? scheduler.schedule(priority, guarded) : guarded)
+                .flatMap(response -> {
+                    if (response == null || response.isEmpty()) {
+                        return Mono.error(new ExternalServiceException("No coordinates found for city: " + city));
+                    }
+                    
+                    try {
+                        Map<String, Object> location = (Map<String, Object>) response.get(0);
+                        double lat = Double.parseDouble(location.get("lat").toString());
+                        double lon = Double.parseDouble(location.get("lon").toString());
+                        return Mono.just(new Coordinates(lat, lon));
+                    } catch (Exception e) {
+                        log.error("Error parsing geocoding response for city: " + city, e);
+                        return Mono.error(new ExternalServiceException("Error parsing geocoding response"));
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.error("Error in geocoding service for city: " + city, e);
+                    return Mono.error(new ExternalServiceException("Error getting coordinates: " + e.getMessage()));
+                });
+    }
 }
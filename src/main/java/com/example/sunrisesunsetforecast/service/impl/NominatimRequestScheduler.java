@@ -0,0 +1,216 @@
+package com.example.sunrisesunsetforecast.service.impl;
+
+import com.example.sunrisesunsetforecast.exception.ExternalServiceException;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Paces outbound Nominatim requests with a token bucket, so that we stay within the usage policy
+ * (about one request per second) however the requests arrive. Requests wait in a bounded queue,
+ * interactive lookups ahead of background refreshes. A request is rejected up front when the queue
+ * is full or its estimated wait exceeds the longest wait allowed for its priority, and is dropped
+ * if it is still queued once that time has passed.
+ */
+@Slf4j
+class NominatimRequestScheduler {
+
+    enum Priority {
+        INTERACTIVE, BACKGROUND
+    }
+
+    private final double permitsPerSecond;
+    private final int burst;
+    private final int maxQueued;
+    private final Duration interactiveMaxWait;
+    private final Duration backgroundMaxWait;
+    private final Consumer<String> rejectionListener;
+    private final ScheduledExecutorService dispatcher;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Ticket<?>> queue = new PriorityQueue<>(
+            Comparator.<Ticket<?>, Priority>comparing(ticket -> ticket.priority).thenComparingLong(ticket -> ticket.sequence));
+
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    private long sequence;
+    private int queuedInteractive;
+    private boolean drainScheduled;
+
+    /**
+     * @param rejectionListener told the reason of every rejected request
+     */
+    NominatimRequestScheduler(double permitsPerSecond, int burst, int maxQueued,
+                              Duration interactiveMaxWait, Duration backgroundMaxWait,
+                              Consumer<String> rejectionListener) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.maxQueued = maxQueued;
+        this.interactiveMaxWait = interactiveMaxWait;
+        this.backgroundMaxWait = backgroundMaxWait;
+        this.rejectionListener = rejectionListener;
+        this.tokens = this.burst;
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nominatim-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sends {@code request} once a token is available. The request is not subscribed to before then.
+     */
+    <T> Mono<T> schedule(Priority priority, Mono<T> request) {
+        return Mono.create(sink -> {
+            Duration maxWait = priority == Priority.INTERACTIVE ? interactiveMaxWait : backgroundMaxWait;
+            Ticket<T> ticket = new Ticket<>(priority, System.nanoTime() + maxWait.toNanos(), request, sink);
+            String rejection = null;
+            String message = null;
+            boolean sendNow = false;
+            lock.lock();
+            try {
+                refill();
+                int ahead = priority == Priority.INTERACTIVE ? queuedInteractive : queue.size();
+                double estimatedWaitSeconds = Math.max(0, ahead + 1 - tokens) / permitsPerSecond;
+                if (queue.isEmpty() && tokens >= 1) {
+                    tokens -= 1;
+                    sendNow = true;
+                } else if (queue.size() >= maxQueued) {
+                    rejection = "queue_full";
+                    message = "Geocoding queue is full, try again later";
+                } else if (estimatedWaitSeconds * 1e9 > maxWait.toNanos()) {
+                    rejection = "deadline";
+                    message = "Geocoding would take longer than " + maxWait.toMillis() + " ms, try again later";
+                } else {
+                    ticket.sequence = sequence++;
+                    queue.add(ticket);
+                    if (priority == Priority.INTERACTIVE) {
+                        queuedInteractive++;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (sendNow) {
+                ticket.send();
+            } else if (rejection != null) {
+                reject(sink, rejection, message);
+            } else {
+                sink.onCancel(() -> ticket.cancelled = true);
+                dispatcher.execute(this::drain);
+            }
+        });
+    }
+
+    int queued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * The drain scheduled for the next token. Drains run on the dispatcher thread only, so no
+     * other one is scheduled until this one starts.
+     */
+    private void scheduledDrain() {
+        lock.lock();
+        try {
+            drainScheduled = false;
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+
+    private void drain() {
+        List<Ticket<?>> ready = new ArrayList<>();
+        List<Ticket<?>> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            refill();
+            long now = System.nanoTime();
+            // Cancelled and expired tickets at the head are dropped whether or not a token is available
+            while (!queue.isEmpty()) {
+                Ticket<?> head = queue.peek();
+                if (head.cancelled) {
+                    poll();
+                } else if (now > head.deadline) {
+                    expired.add(poll());
+                } else if (tokens >= 1) {
+                    tokens -= 1;
+                    ready.add(poll());
+                } else {
+                    break;
+                }
+            }
+            if (!queue.isEmpty() && !drainScheduled) {
+                long untilNextToken = (long) ((1 - tokens) / permitsPerSecond * 1e9);
+                dispatcher.schedule(this::scheduledDrain, Math.max(1, untilNextToken), TimeUnit.NANOSECONDS);
+                drainScheduled = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        expired.forEach(ticket -> reject(ticket.sink, "deadline", "Geocoding request waited too long, try again later"));
+        ready.forEach(Ticket::send);
+    }
+
+    private Ticket<?> poll() {
+        Ticket<?> ticket = queue.poll();
+        if (ticket.priority == Priority.INTERACTIVE) {
+            queuedInteractive--;
+        }
+        return ticket;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) / 1e9 * permitsPerSecond);
+        refilledAt = now;
+    }
+
+    private void reject(MonoSink<?> sink, String reason, String message) {
+        log.warn("Rejecting Nominatim request ({}): {}", reason, message);
+        rejectionListener.accept(reason);
+        sink.error(new ExternalServiceException(message));
+    }
+
+    private static final class Ticket<T> {
+        private final Priority priority;
+        private final long deadline;
+        private final Mono<T> request;
+        private final MonoSink<T> sink;
+        private long sequence;
+        private volatile boolean cancelled;
+
+        private Ticket(Priority priority, long deadline, Mono<T> request, MonoSink<T> sink) {
+            this.priority = priority;
+            this.deadline = deadline;
+            this.request = request;
+            this.sink = sink;
+        }
+
+        private void send() {
+            // Sent from the dispatcher thread, in the context of the caller waiting for it
+            request.contextWrite(sink.contextView()).subscribe(sink::success, sink::error, sink::success);
+        }
+    }
+}
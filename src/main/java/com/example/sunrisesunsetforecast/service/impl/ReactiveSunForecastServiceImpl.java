@@ -0,0 +1,157 @@
+package com.example.sunrisesunsetforecast.service.impl;
+
+import com.example.sunrisesunsetforecast.cache.ReactiveCache;
+import com.example.sunrisesunsetforecast.client.OpenMeteoClient;
+import com.example.sunrisesunsetforecast.client.dto.OpenMeteoResponse;
+import com.example.sunrisesunsetforecast.dto.ForecastUpdate;
+import com.example.sunrisesunsetforecast.dto.SunForecastResponse;
+import com.example.sunrisesunsetforecast.exception.ExternalServiceException;
+import com.example.sunrisesunsetforecast.model.Coordinates;
+import com.example.sunrisesunsetforecast.service.ReactiveGeocodingService;
+import com.example.sunrisesunsetforecast.service.ReactiveSunForecastService;
+import com.example.sunrisesunsetforecast.service.impl.ForecastStageTimers.Stage;
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking forecast pipeline. Geocoding and the Open-Meteo call run on the WebClient event loop;
+ * only the chat model call, which LangChain4j exposes as a blocking API, is moved to the
+ * blocking call scheduler (bounded elastic, or virtual threads; see ExecutorConfig). The request's
+ * observation is carried in the Reactor context, so stages and upstream calls are observed as they
+ * are in the blocking pipeline.
+ */
+@Slf4j
+@Service
+public class ReactiveSunForecastServiceImpl implements ReactiveSunForecastService {
+
+    private static final ContextSnapshotFactory CONTEXT_SNAPSHOTS = ContextSnapshotFactory.builder().build();
+
+    private final ReactiveGeocodingService geocodingService;
+    private final OpenMeteoClient openMeteoClient;
+    private final SunForecastAssembler sunForecastAssembler;
+    private final ReactiveCache<Coordinates> coordinatesCache;
+    private final ReactiveCache<SunForecastResponse> forecastCache;
+    private final Scheduler blockingCallScheduler;
+    private final ForecastStageTimers stageTimers;
+
+    public ReactiveSunForecastServiceImpl(ReactiveGeocodingService geocodingService,
+                                          OpenMeteoClient openMeteoClient,
+                                          SunForecastAssembler sunForecastAssembler,
+                                          CacheManager cacheManager,
+                                          Scheduler blockingCallScheduler,
+                                          ForecastStageTimers stageTimers) {
+        this.geocodingService = geocodingService;
+        this.openMeteoClient = openMeteoClient;
+        this.sunForecastAssembler = sunForecastAssembler;
+        this.coordinatesCache = new ReactiveCache<>(cacheManager.getCache("cityCoordinates"), Coordinates.class);
+        this.forecastCache = new ReactiveCache<>(cacheManager.getCache("sunForecast"), SunForecastResponse.class);
+        this.blockingCallScheduler = blockingCallScheduler;
+        this.stageTimers = stageTimers;
+    }
+
+    @Override
+    public Mono<SunForecastResponse> getSunForecast(String city) {
+        // A response with the template message is served once and not kept, like in the blocking pipeline
+        return forecastCache.get(city.toLowerCase(), key -> fetchSunForecast(city), forecast -> !forecast.isTemplateMessage())
+                .contextCapture();
+    }
+
+    @Override
+    public Flux<ForecastUpdate> streamSunForecast(String city) {
+        SunForecastResponse cached = forecastCache.getIfPresent(city.toLowerCase());
+        if (cached != null) {
+            return Flux.just(ForecastUpdate.forecast(cached), ForecastUpdate.description(cached));
+        }
+        log.debug("Streaming sun forecast for city: {}", city);
+        LocalDate forecastDate = LocalDate.now().plusDays(1); // Tomorrow's date
+
+        return assembleForecast(city, forecastDate).flatMapMany(forecast -> {
+            StringBuilder message = new StringBuilder();
+            AtomicBoolean template = new AtomicBoolean();
+            Flux<ForecastUpdate> tokens = sunForecastAssembler.streamDescription(forecast, forecastDate)
+                    .doOnNext(chunk -> {
+                        message.append(chunk.text());
+                        template.compareAndSet(false, chunk.template());
+                    })
+                    .map(chunk -> ForecastUpdate.token(chunk.text()));
+            // Once the stream completes the complete forecast is cached like any other; the
+            // template is served once and not kept, like in the other pipelines
+            Mono<ForecastUpdate> complete = Mono.fromSupplier(() -> {
+                SunForecastResponse described = forecast.toBuilder()
+                        .enhancedMessage(message.toString().trim())
+                        .templateMessage(forecast.isTemplateMessage() || template.get())
+                        .build();
+                if (!described.isTemplateMessage()) {
+                    forecastCache.put(city.toLowerCase(), described);
+                }
+                return ForecastUpdate.description(described);
+            });
+            return Flux.concat(Mono.just(ForecastUpdate.forecast(forecast)), tokens, complete);
+        }).contextCapture();
+    }
+
+    private Mono<SunForecastResponse> fetchSunForecast(String city) {
+        log.debug("Fetching sun forecast reactively for city: {}", city);
+        LocalDate forecastDate = LocalDate.now().plusDays(1); // Tomorrow's date
+
+        return assembleForecast(city, forecastDate)
+                .flatMap(forecast -> describe(forecast, forecastDate));
+    }
+
+    /**
+     * Geocodes the city and assembles the forecast without the AI message.
+     */
+    private Mono<SunForecastResponse> assembleForecast(String city, LocalDate forecastDate) {
+        return stageTimers.record(Stage.GEOCODING,
+                        coordinatesCache.get(city.toLowerCase(), key -> geocodingService.lookupCoordinates(city)))
+                .switchIfEmpty(Mono.error(() -> new ExternalServiceException("Could not find coordinates for city: " + city)))
+                .flatMap(coords -> fetchWeather(city, coords)
+                        .flatMap(forecast -> stageTimers.record(Stage.ASSEMBLY, fromCallable(
+                                () -> sunForecastAssembler.assemble(city, coords, forecast.orElse(null), forecastDate)))))
+                .onErrorMap(e -> !(e instanceof ExternalServiceException),
+                        e -> new ExternalServiceException("Error fetching sun forecast: " + e.getMessage(), e));
+    }
+
+    private Mono<SunForecastResponse> describe(SunForecastResponse forecast, LocalDate forecastDate) {
+        return stageTimers.record(Stage.DESCRIPTION, fromCallable(() -> sunForecastAssembler.describe(forecast, forecastDate))
+                        .subscribeOn(blockingCallScheduler))
+                .onErrorMap(e -> !(e instanceof ExternalServiceException),
+                        e -> new ExternalServiceException("Error fetching sun forecast: " + e.getMessage(), e));
+    }
+
+    /**
+     * Weather data is best effort: sun times are computed locally and do not depend on it.
+     */
+    private Mono<Optional<OpenMeteoResponse>> fetchWeather(String city, Coordinates coords) {
+        return stageTimers.record(Stage.WEATHER, openMeteoClient.fetchForecast(coords))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .onErrorResume(e -> {
+                    log.warn("Weather data unavailable for city: {}, continuing with computed sun times: {}", city, e.getMessage());
+                    return Mono.just(Optional.empty());
+                });
+    }
+
+    /**
+     * Runs a blocking call with the observation of the Reactor context current, so that what it
+     * observes, such as upstream calls, joins the request.
+     */
+    private static <T> Mono<T> fromCallable(Callable<T> call) {
+        return Mono.deferContextual(context -> Mono.fromCallable(() -> {
+            try (ContextSnapshot.Scope scope = CONTEXT_SNAPSHOTS.setThreadLocalsFrom(context)) {
+                return call.call();
+            }
+        }));
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.sunrisesunsetforecast.service.impl;
+
+import com.example.sunrisesunsetforecast.client.dto.OpenMeteoResponse;
+import com.example.sunrisesunsetforecast.dto.SunForecastResponse;
+import com.example.sunrisesunsetforecast.model.Coordinates;
+import com.example.sunrisesunsetforecast.service.ForecastDescriptionService;
+import com.example.sunrisesunsetforecast.service.SunTimesCalculator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Turns coordinates and the (optional) Open-Meteo forecast into a {@link SunForecastResponse}.
+ * Shared by the blocking and reactive forecast services so both produce identical responses.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SunForecastAssembler {
+
+    private final SunTimesCalculator sunTimesCalculator;
+    private final ForecastDescriptionService forecastDescriptionService;
+
+    /**
+     * Builds the forecast without the AI message. Times are given in the location's time zone
+     * as reported by Open-Meteo; without it they are given in UTC and the forecast is flagged
+     * like a template, so that it is not cached.
+     *
+     * @param forecast the Open-Meteo forecast, or null when weather data is unavailable
+     */
+    public SunForecastResponse assemble(String city, Coordinates coords, OpenMeteoResponse forecast, LocalDate forecastDate) {
+        OpenMeteoResponse.Daily daily = forecast != null ? forecast.getDaily() : null;
+        int dayIndex = findDayIndex(daily, forecastDate);
+        ZoneId zone = resolveZone(forecast);
+        if (zone == null) {
+            log.debug("Time zone of {} unknown, giving its times in UTC", city);
+        }
+        ZoneId responseZone = zone != null ? zone : ZoneOffset.UTC;
+        
+        OffsetDateTime sunrise = toOffsetDateTime(
+                sunTimesCalculator.sunriseEpochSecond(coords.getLatitude(), coords.getLongitude(), forecastDate.toEpochDay()),
+                responseZone, daily != null ? daily.getSunriseTimes() : null, dayIndex);
+        OffsetDateTime sunset = toOffsetDateTime(
+                sunTimesCalculator.sunsetEpochSecond(coords.getLatitude(), coords.getLongitude(), forecastDate.toEpochDay()),
+                responseZone, daily != null ? daily.getSunsetTimes() : null, dayIndex);
+        
+        // Get temperature and weather condition (if available)
+        Double temperature = null;
+        if (daily != null && daily.getTemperature2mMax() != null && 
+            daily.getTemperature2mMax().length > dayIndex && !Double.isNaN(daily.getTemperature2mMax()[dayIndex])) {
+            temperature = daily.getTemperature2mMax()[dayIndex];
+        }
+        
+        String weatherCondition = "Clear"; // Default value if not available
+        if (daily != null && daily.getWeatherCode() != null && 
+            daily.getWeatherCode().length > dayIndex && daily.getWeatherCode()[dayIndex] != OpenMeteoResponse.Daily.NO_WEATHER_CODE) {
+            weatherCondition = mapWeatherCode(daily.getWeatherCode()[dayIndex]);
+        }
+        
+        return SunForecastResponse.builder()
+            .city(city)
+            .date(forecastDate)
+            .sunrise(sunrise)
+            .sunset(sunset)
+            .temperature(temperature)
+            .weatherCondition(weatherCondition)
+            .templateMessage(zone == null)
+            .build();
+    }
+    
+    /**
+     * Generates the AI message for an assembled forecast. This calls the chat model and blocks.
+     *
+     * @return a copy of the forecast including the enhanced message, flagged if it is the template
+     */
+    public SunForecastResponse describe(SunForecastResponse forecast, LocalDate forecastDate) {
+        ForecastDescriptionService.ForecastDescription description = forecastDescriptionService.describeForecast(
+            forecast.getCity(),
+            forecastDate,
+            forecast.getSunrise() != null ? forecast.getSunrise().toLocalTime().truncatedTo(ChronoUnit.MINUTES) : null,
+            forecast.getSunset() != null ? forecast.getSunset().toLocalTime().truncatedTo(ChronoUnit.MINUTES) : null,
+            forecast.getTemperature() != null ? forecast.getTemperature() : 20.0, // Default to 20°C if not available
+            forecast.getWeatherCondition()
+        );
+        return forecast.toBuilder()
+            .enhancedMessage(description.text())
+            .templateMessage(forecast.isTemplateMessage() || description.template())
+            .build();
+    }
+
+    /**
+     * Streams the AI message for an assembled forecast token by token, without blocking, or the
+     * template in one chunk if the chat model cannot be used.
+     */
+    public Flux<ForecastDescriptionService.ForecastDescription> streamDescription(SunForecastResponse forecast, LocalDate forecastDate) {
+        return forecastDescriptionService.streamForecastDescription(
+            forecast.getCity(),
+            forecastDate,
+            forecast.getSunrise() != null ? forecast.getSunrise().toLocalTime().truncatedTo(ChronoUnit.MINUTES) : null,
+            forecast.getSunset() != null ? forecast.getSunset().toLocalTime().truncatedTo(ChronoUnit.MINUTES) : null,
+            forecast.getTemperature() != null ? forecast.getTemperature() : 20.0, // Default to 20°C if not available
+            forecast.getWeatherCondition()
+        );
+    }
+    
+    /**
+     * Finds the position of the given date in the daily forecast, falling back to the first entry.
+     */
+    private int findDayIndex(OpenMeteoResponse.Daily daily, LocalDate date) {
+        if (daily == null || daily.getTime() == null) {
+            return 0;
+        }
+        long midnight = date.toEpochDay() * 86_400;
+        long[] days = daily.getTime();
+        for (int i = 0; i < days.length; i++) {
+            if (days[i] == midnight) {
+                return i;
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * The location's time zone reported by Open-Meteo, or null if it is not known. The zone rather
+     * than the reported offset is used, as the offset is today's and may not hold on the forecast date.
+     */
+    private ZoneId resolveZone(OpenMeteoResponse forecast) {
+        if (forecast == null || forecast.getTimezone() == null) {
+            return null;
+        }
+        try {
+            return ZoneId.of(forecast.getTimezone());
+        } catch (DateTimeException e) {
+            log.warn("Unknown time zone {} in Open-Meteo response", forecast.getTimezone());
+            return null;
+        }
+    }
+    
+    /**
+     * Converts a computed sun event to the response format. When the sun does not rise or set
+     * on that day, the time reported by Open-Meteo (if any) is used instead.
+     */
+    private OffsetDateTime toOffsetDateTime(long epochSecond, ZoneId zone, long[] reportedTimes, int dayIndex) {
+        if (epochSecond != SunTimesCalculator.NO_EVENT) {
+            return Instant.ofEpochSecond(epochSecond).atZone(zone).toOffsetDateTime();
+        }
+        if (reportedTimes != null && reportedTimes.length > dayIndex && reportedTimes[dayIndex] != OpenMeteoResponse.Daily.NO_TIME) {
+            // Reported times are local wall-clock seconds
+            return LocalDateTime.ofEpochSecond(reportedTimes[dayIndex], 0, ZoneOffset.UTC).atZone(zone).toOffsetDateTime();
+        }
+        return null;
+    }
+    
+    /**
+     * Maps OpenMeteo weather code to a human-readable weather condition.
+     * Reference: https://open-meteo.com/en/docs#api_form
+     */
+    static String mapWeatherCode(int code) {
+        return switch (code) {
+            case 0 -> "Clear";
+            case 1, 2, 3 -> "Partly Cloudy";
+            case 45, 48 -> "Foggy";
+            case 51, 53, 55 -> "Drizzle";
+            case 56, 57 -> "Freezing Drizzle";
+            case 61, 63, 65 -> "Rain";
+            case 66, 67 -> "Freezing Rain";
+            case 71, 73, 75 -> "Snow";
+            case 77 -> "Snow Grains";
+            case 80, 81, 82 -> "Rain Showers";
+            case 85, 86 -> "Snow Showers";
+            case 95, 96, 99 -> "Thunderstorm";
+            default -> "Unknown";
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.sunrisesunsetforecast.tracing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durations of the observations made within one request, kept in the request's observation
+ * context by {@link ServerTimingHandler}.
+ */
+final class ServerTiming {
+
+    private final long startNanos = System.nanoTime();
+    private final List<Entry> entries = new ArrayList<>();
+
+    synchronized void add(String metric, long startNanos, long durationNanos) {
+        entries.add(new Entry(metric, startNanos, durationNanos));
+    }
+
+    /**
+     * The header value: the durations summed by metric, in the order they first started, then the
+     * time since the request started.
+     */
+    String header() {
+        List<Entry> sorted;
+        synchronized (this) {
+            sorted = new ArrayList<>(entries);
+        }
+        sorted.sort(Comparator.comparingLong(Entry::startNanos));
+        Map<String, Long> nanos = new LinkedHashMap<>();
+        for (Entry entry : sorted) {
+            nanos.merge(entry.metric(), entry.durationNanos(), Long::sum);
+        }
+        StringBuilder header = new StringBuilder();
+        nanos.forEach((metric, duration) -> header.append(metric).append(";dur=").append(millis(duration)).append(", "));
+        return header.append("total;dur=").append(millis(System.nanoTime() - startNanos)).toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private record Entry(String metric, long startNanos, long durationNanos) {
+    }
+}
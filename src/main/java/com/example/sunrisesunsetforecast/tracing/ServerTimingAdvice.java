@@ -0,0 +1,42 @@
+package com.example.sunrisesunsetforecast.tracing;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds a {@code Server-Timing} header to API responses with the time spent in each stage, upstream
+ * call and cache lookup of the request so far (collected by {@link ServerTimingHandler}), so browser dev
+ * tools and clients can see where a slow response spent its time. Added just before the body is
+ * written, the last point at which headers can be set; streamed responses do not get it.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "forecast.tracing.server-timing", havingValue = "true")
+public class ServerTimingAdvice implements ResponseBodyAdvice<Object> {
+
+    static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest) {
+            ServerHttpObservationFilter.findObservationContext(servletRequest.getServletRequest())
+                    .map(context -> context.<ServerTiming>get(ServerTiming.class))
+                    .ifPresent(timing -> response.getHeaders().set(SERVER_TIMING_HEADER, timing.header()));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.sunrisesunsetforecast.tracing;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationView;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.StringJoiner;
+
+/**
+ * Collects the durations of the observations made within each HTTP request, such as pipeline
+ * stages, upstream calls and cache lookups, for the {@code Server-Timing} header written by
+ * {@link ServerTimingAdvice}. It sees every observation, sampled for tracing or not.
+ * <p>
+ * An observation is listed under its contextual name, described by its low cardinality key values
+ * except the one repeating that name and a successful outcome, e.g.
+ * {@code cache;desc="sunForecast miss"}.
+ */
+@Component
+@ConditionalOnProperty(name = "forecast.tracing.server-timing", havingValue = "true")
+public class ServerTimingHandler implements ObservationHandler<Observation.Context> {
+
+    @Override
+    public void onStart(Observation.Context context) {
+        if (context instanceof ServerRequestObservationContext) {
+            context.put(ServerTiming.class, new ServerTiming());
+        } else {
+            context.put(Start.class, new Start(System.nanoTime()));
+        }
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        Start start = context.get(Start.class);
+        ServerTiming timing = requestTiming(context);
+        if (start != null && timing != null) {
+            timing.add(metric(context), start.nanos(), System.nanoTime() - start.nanos());
+        }
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return true;
+    }
+
+    /**
+     * The timing of the request the observation was made in, if any.
+     */
+    private static ServerTiming requestTiming(Observation.ContextView context) {
+        ObservationView parent = context.getParentObservation();
+        while (parent != null) {
+            Observation.ContextView parentContext = parent.getContextView();
+            if (parentContext instanceof ServerRequestObservationContext request) {
+                return request.get(ServerTiming.class);
+            }
+            parent = parentContext.getParentObservation();
+        }
+        return null;
+    }
+
+    private static String metric(Observation.Context context) {
+        String name = context.getContextualName() != null ? context.getContextualName() : context.getName();
+        StringJoiner description = new StringJoiner(" ", ";desc=\"", "\"").setEmptyValue("");
+        for (KeyValue keyValue : context.getLowCardinalityKeyValues()) {
+            String value = keyValue.getValue();
+            if (!value.equals(name) && !(keyValue.getKey().equals("outcome") && value.equals("success"))) {
+                description.add(value);
+            }
+        }
+        return name + description;
+    }
+
+    private record Start(long nanos) {
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import com.example.sunrisesunsetforecast.config.ForecastCacheProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheFreshnessTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private Cache<Object, Object> cache;
+    private CacheFreshness cacheFreshness;
+
+    @BeforeEach
+    void setUp() {
+        // ttl 60m, refresh-ahead 10m, stale-window 30m: fresh for 50m, then served stale for up to 40m
+        ForecastCacheProperties.Spec spec = new ForecastCacheProperties.Spec();
+        spec.setTtl(Duration.ofMinutes(60));
+        spec.setRefreshAhead(Duration.ofMinutes(10));
+        spec.setStaleWindow(Duration.ofMinutes(30));
+        ForecastCacheProperties properties = new ForecastCacheProperties();
+        properties.getCaches().put("sunForecast", spec);
+
+        long expireAfter = Duration.ofMinutes(90).toNanos();
+        cache = Caffeine.newBuilder()
+                .ticker(nanos::get)
+                .expireAfter(new Expiry<>() {
+                    @Override
+                    public long expireAfterCreate(Object key, Object value, long currentTime) {
+                        return expireAfter;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+                        return expireAfter;
+                    }
+
+                    @Override
+                    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache("sunForecast", cache);
+        cacheFreshness = new CacheFreshness(cacheManager, properties);
+    }
+
+    @Test
+    void of_ShouldCountDownFreshness_AsTheEntryAges() {
+        String forecast = "forecast";
+        cache.put("london", forecast);
+        nanos.addAndGet(Duration.ofMinutes(20).toNanos());
+
+        Optional<CacheFreshness.Freshness> freshness = cacheFreshness.of("sunForecast", "london", forecast);
+
+        assertEquals(Optional.of(new CacheFreshness.Freshness(Duration.ofMinutes(30), Duration.ofMinutes(40))), freshness);
+    }
+
+    @Test
+    void of_ShouldOnlyAllowStaleUse_OnceTheEntryIsDueForRefresh() {
+        String forecast = "forecast";
+        cache.put("london", forecast);
+        nanos.addAndGet(Duration.ofMinutes(75).toNanos());
+
+        Optional<CacheFreshness.Freshness> freshness = cacheFreshness.of("sunForecast", "london", forecast);
+
+        assertEquals(Optional.of(new CacheFreshness.Freshness(Duration.ZERO, Duration.ofMinutes(15))), freshness);
+    }
+
+    @Test
+    void of_ShouldBeEmpty_WhenTheValueIsNotTheCachedOne() {
+        cache.put("london", "refreshed forecast");
+
+        assertTrue(cacheFreshness.of("sunForecast", "london", "forecast").isEmpty());
+        assertTrue(cacheFreshness.of("sunForecast", "paris", "forecast").isEmpty());
+        assertTrue(cacheFreshness.of("unknown", "london", "refreshed forecast").isEmpty());
+    }
+}
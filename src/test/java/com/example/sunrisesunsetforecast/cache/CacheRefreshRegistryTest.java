@@ -0,0 +1,29 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheRefreshRegistryTest {
+
+    private final CacheRefreshRegistry registry = new CacheRefreshRegistry();
+
+    @Test
+    void get_ShouldRunRefreshers_AsBackgroundRefreshes() {
+        registry.<Boolean>register("sunForecast", (key, previous) -> BackgroundRefresh.isActive());
+
+        assertTrue((Boolean) registry.get("sunForecast").refresh("london", null));
+        assertFalse(BackgroundRefresh.isActive());
+    }
+
+    @Test
+    void get_ShouldKeepTheMark_ThroughRefreshesOfOtherCaches() {
+        // A forecast refresh geocodes the city through the coordinates cache, which may refresh too
+        registry.<Boolean>register("cityCoordinates", (key, previous) -> BackgroundRefresh.isActive());
+        registry.<Boolean>register("sunForecast", (key, previous) ->
+                (Boolean) registry.get("cityCoordinates").refresh(key, null) && BackgroundRefresh.isActive());
+
+        assertTrue((Boolean) registry.get("sunForecast").refresh("london", null));
+        assertFalse(BackgroundRefresh.isActive());
+    }
+}
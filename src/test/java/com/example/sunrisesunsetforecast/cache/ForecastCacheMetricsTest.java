@@ -0,0 +1,68 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import com.example.sunrisesunsetforecast.config.CacheConfig;
+import com.example.sunrisesunsetforecast.config.ForecastCacheProperties;
+import com.example.sunrisesunsetforecast.model.Coordinates;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cache.Cache;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForecastCacheMetricsTest {
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PersistentCaffeineCacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        // A persisted, refreshing cache: wrapped for write-behind, with a loader that only refreshes
+        ForecastCacheProperties.Spec spec = new ForecastCacheProperties.Spec();
+        spec.setRefreshAhead(Duration.ofMinutes(10));
+        spec.setPersist(true);
+        ForecastCacheProperties properties = new ForecastCacheProperties();
+        properties.getPersistence().setEnabled(true);
+        properties.getPersistence().setDirectory(directory);
+        properties.getCaches().put("cityCoordinates", spec);
+
+        cacheManager = (PersistentCaffeineCacheManager) new CacheConfig().cacheManager(properties,
+                new CacheRefreshRegistry(), Runnable::run, new ObjectMapper().findAndRegisterModules(),
+                ObservationRegistry.NOOP, "maximumSize=10");
+        new ForecastCacheMetrics(cacheManager, properties).bindTo(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.destroy();
+    }
+
+    @Test
+    void bindTo_ShouldCountHitsAndMisses_OfWrappedCaches() {
+        Cache cache = cacheManager.getCache("cityCoordinates");
+        assertNull(cache.get("london"));
+        cache.put("london", new Coordinates(51.5074, -0.1278));
+        assertNotNull(cache.get("london"));
+
+        assertEquals(1.0, gets("miss"));
+        assertEquals(1.0, gets("hit"));
+        assertEquals(0.0, meterRegistry.get("cache.load").tag("cache", "cityCoordinates")
+                .tag("result", "failure").functionCounter().count());
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "cityCoordinates")
+                .tag(ForecastCacheMetrics.CACHE_MANAGER_TAG, "cacheManager").tag("result", result)
+                .functionCounter().count();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import com.example.sunrisesunsetforecast.model.Coordinates;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentCacheStoreTest {
+
+    private static final Instant NOW = Instant.parse("2024-06-01T12:00:00Z");
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void open_ShouldReadBackWrittenEntries_WithTheirAge() throws Exception {
+        PersistentCacheStore first = store(NOW);
+        first.open(Duration.ofDays(7));
+        first.append("london", new Coordinates(51.5074, -0.1278));
+        first.close();
+
+        Map<String, PersistentCacheStore.Loaded> loaded = store(NOW.plus(Duration.ofHours(2))).open(Duration.ofDays(7));
+
+        assertEquals(new Coordinates(51.5074, -0.1278), loaded.get("london").value());
+        assertEquals(Duration.ofHours(2), loaded.get("london").age());
+    }
+
+    @Test
+    void open_ShouldApplyRemovals_AndDropExpiredEntries() throws Exception {
+        PersistentCacheStore first = store(NOW);
+        first.open(Duration.ofHours(1));
+        first.append("london", new Coordinates(51.5074, -0.1278));
+        first.append("paris", new Coordinates(48.8566, 2.3522));
+        first.remove("paris");
+        first.close();
+
+        assertEquals(1, store(NOW.plus(Duration.ofMinutes(30))).open(Duration.ofHours(1)).size());
+        assertTrue(store(NOW.plus(Duration.ofHours(1))).open(Duration.ofHours(1)).isEmpty());
+    }
+
+    @Test
+    void open_ShouldSkipTruncatedLine_AndCompactFile() throws Exception {
+        PersistentCacheStore first = store(NOW);
+        first.open(Duration.ofDays(7));
+        first.append("london", new Coordinates(51.5074, -0.1278));
+        first.append("london", new Coordinates(51.5, -0.12));
+        first.close();
+        Path file = directory.resolve("cityCoordinates.jsonl");
+        Files.writeString(file, "{\"key\":\"par", StandardOpenOption.APPEND);
+
+        PersistentCacheStore second = store(NOW);
+        Map<String, PersistentCacheStore.Loaded> loaded = second.open(Duration.ofDays(7));
+        second.close();
+
+        assertEquals(new Coordinates(51.5, -0.12), loaded.get("london").value());
+        assertEquals(1, Files.readAllLines(file).size());
+    }
+
+    @Test
+    void append_ShouldDropWrites_WhenTheQueueIsFull() throws Exception {
+        PersistentCacheStore first = store(NOW, 1, 1 << 20);
+        first.append("london", new Coordinates(51.5074, -0.1278));
+        first.append("paris", new Coordinates(48.8566, 2.3522));
+        first.open(Duration.ofDays(7));
+        first.close();
+
+        assertEquals(Map.of("london", new PersistentCacheStore.Loaded(new Coordinates(51.5074, -0.1278), Duration.ZERO)),
+                store(NOW).open(Duration.ofDays(7)));
+    }
+
+    @Test
+    void writeBehind_ShouldCompactTheFile_OnceItReachesTheThreshold() throws Exception {
+        PersistentCacheStore first = store(NOW, 100, 1);
+        first.open(Duration.ofDays(7));
+        for (int i = 0; i < 20; i++) {
+            first.append("london", new Coordinates(51.5 + i, -0.12));
+        }
+        Path file = directory.resolve("cityCoordinates.jsonl");
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!(Files.readAllLines(file).size() == 1 && Files.readString(file).contains("70.5"))
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        first.close();
+
+        assertEquals(1, Files.readAllLines(file).size());
+        assertTrue(Files.readString(file).contains("70.5"));
+    }
+
+    private PersistentCacheStore store(Instant now) {
+        return store(now, 1000, 1 << 20);
+    }
+
+    private PersistentCacheStore store(Instant now, int queueCapacity, long compactThreshold) {
+        return new PersistentCacheStore("cityCoordinates", directory, Coordinates.class, objectMapper,
+                queueCapacity, compactThreshold, Clock.fixed(now, ZoneOffset.UTC));
+    }
+}
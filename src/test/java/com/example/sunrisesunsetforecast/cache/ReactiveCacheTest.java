@@ -0,0 +1,124 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveCacheTest {
+
+    private Cache springCache;
+    private ReactiveCache<String> reactiveCache;
+
+    @BeforeEach
+    void setUp() {
+        springCache = new ConcurrentMapCache("test");
+        reactiveCache = new ReactiveCache<>(springCache, String.class);
+    }
+
+    @Test
+    void get_ShouldServeSpringCacheEntry_WithoutLoading() {
+        springCache.put("london", "cached");
+
+        String value = reactiveCache.get("london", key -> Mono.error(new AssertionError("Should not load"))).block();
+
+        assertEquals("cached", value);
+    }
+
+    @Test
+    void get_ShouldShareInFlightLoad_AndWriteThroughToSpringCache() {
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+
+        CompletableFuture<String> first = reactiveCache.get("paris", key -> {
+            loads.incrementAndGet();
+            return upstream.asMono();
+        }).toFuture();
+        CompletableFuture<String> second = reactiveCache.get("paris", key -> {
+            loads.incrementAndGet();
+            return upstream.asMono();
+        }).toFuture();
+        upstream.tryEmitValue("loaded");
+
+        assertEquals("loaded", first.join());
+        assertEquals("loaded", second.join());
+        assertEquals(1, loads.get());
+        assertEquals("loaded", springCache.get("paris", String.class));
+    }
+
+    @Test
+    void get_ShouldLoadAgain_OnceTheSpringCacheEntryIsGone() {
+        AtomicInteger loads = new AtomicInteger();
+        reactiveCache.get("oslo", key -> Mono.just("v" + loads.incrementAndGet())).block();
+        springCache.evict("oslo");
+
+        String value = reactiveCache.get("oslo", key -> Mono.just("v" + loads.incrementAndGet())).block();
+
+        assertEquals("v2", value);
+        assertNull(reactiveCache.getIfPresent("missing"));
+    }
+
+    @Test
+    void get_ShouldLoadOnSubscription_InTheSubscribersContext() {
+        AtomicInteger loads = new AtomicInteger();
+        Mono<String> lookup = reactiveCache.get("lima", key -> Mono.deferContextual(context -> {
+            loads.incrementAndGet();
+            return Mono.just(context.get("request"));
+        }));
+
+        assertEquals(0, loads.get());
+        assertEquals("r1", lookup.contextWrite(context -> context.put("request", "r1")).block());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_ShouldCancelTheLoad_OnceEveryCallerHasCancelled() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Sinks.One<String> upstream = Sinks.one();
+        Function<String, Mono<String>> loader = key -> upstream.asMono().doOnCancel(() -> cancelled.set(true));
+
+        Disposable first = reactiveCache.get("quito", loader).subscribe();
+        Disposable second = reactiveCache.get("quito", loader).subscribe();
+        first.dispose();
+        assertFalse(cancelled.get());
+        second.dispose();
+
+        assertTrue(cancelled.get());
+        assertNull(springCache.get("quito"));
+    }
+
+    @Test
+    void get_ShouldNotWriteValuesThatAreNotCacheable() {
+        String value = reactiveCache.get("oslo", key -> Mono.just("template"), loaded -> !loaded.equals("template")).block();
+
+        assertEquals("template", value);
+        assertNull(springCache.get("oslo"));
+    }
+
+    @Test
+    void get_ShouldNotCacheFailures() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> reactiveCache.get("rome", key -> {
+            loads.incrementAndGet();
+            return Mono.<String>error(new IllegalStateException("boom"));
+        }).block());
+        String value = reactiveCache.get("rome", key -> {
+            loads.incrementAndGet();
+            return Mono.just("recovered");
+        }).block();
+
+        assertEquals("recovered", value);
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NullValue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefreshingCacheLoaderTest {
+
+    private CacheRefreshRegistry registry;
+    private RefreshingCacheLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        registry = new CacheRefreshRegistry();
+        loader = new RefreshingCacheLoader("sunForecast", registry);
+    }
+
+    @Test
+    void load_ShouldLeaveMissesToTheCacheableMethod() {
+        registry.<String>register("sunForecast", (key, previous) -> {
+            throw new AssertionError("Should not refresh on a miss");
+        });
+
+        assertNull(loader.load("london"));
+    }
+
+    @Test
+    void reload_ShouldCallRegisteredRefresher_WithPreviousValue() {
+        registry.<String>register("sunForecast", (key, previous) -> key + " after " + previous);
+
+        assertEquals("london after old", loader.reload("london", "old"));
+    }
+
+    @Test
+    void reload_ShouldPassNull_ForCachedNullValue() {
+        AtomicReference<Object> seen = new AtomicReference<>("unset");
+        registry.<String>register("sunForecast", (key, previous) -> {
+            seen.set(previous);
+            return "fresh";
+        });
+
+        assertEquals("fresh", loader.reload("london", NullValue.INSTANCE));
+        assertNull(seen.get());
+    }
+
+    @Test
+    void reload_ShouldDropEntry_WhenNoRefresherRegistered() {
+        assertNull(loader.reload("london", "old"));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import com.example.sunrisesunsetforecast.dto.SunForecastResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseBytesCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void get_ShouldEncodeEachResponseInstanceOnce() throws Exception {
+        ResponseBytesCache cache = new ResponseBytesCache(objectMapper, false, 100);
+        SunForecastResponse forecast = SunForecastResponse.builder().city("Oslo").weatherCondition("Snow").build();
+
+        ResponseBytesCache.Encoded encoded = cache.get(forecast);
+
+        assertSame(encoded, cache.get(forecast));
+        assertArrayEquals(objectMapper.writeValueAsBytes(forecast), encoded.json());
+        assertNull(encoded.gzip(), "gzip is disabled");
+    }
+
+    @Test
+    void get_ShouldKeepEqualButDistinctResponsesApart() {
+        ResponseBytesCache cache = new ResponseBytesCache(objectMapper, false, 100);
+        SunForecastResponse forecast = SunForecastResponse.builder().city("Oslo").build();
+        SunForecastResponse refreshed = forecast.toBuilder().build();
+
+        assertNotSame(cache.get(forecast), cache.get(refreshed));
+    }
+
+    @Test
+    void gzip_ShouldCompressTheJson_WhenThatMakesItSmaller() throws IOException {
+        ResponseBytesCache cache = new ResponseBytesCache(objectMapper, true, 100);
+        SunForecastResponse forecast = SunForecastResponse.builder()
+                .city("Oslo")
+                .enhancedMessage("Snow all day in Oslo. Snow all day in Oslo. Snow all day in Oslo. Snow all day in Oslo.")
+                .build();
+
+        ResponseBytesCache.Encoded encoded = cache.get(forecast);
+        byte[] gzip = encoded.gzip();
+
+        assertNotNull(gzip);
+        assertTrue(gzip.length < encoded.json().length);
+        assertSame(gzip, encoded.gzip());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            assertArrayEquals(encoded.json(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void gzip_ShouldBeSkipped_WhenItWouldNotBeSmaller() {
+        ResponseBytesCache cache = new ResponseBytesCache(objectMapper, true, 100);
+
+        assertNull(cache.get(SunForecastResponse.builder().city("Ny").build()).gzip());
+    }
+}
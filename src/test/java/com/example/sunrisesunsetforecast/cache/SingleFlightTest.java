@@ -0,0 +1,116 @@
+package com.example.sunrisesunsetforecast.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 5;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SingleFlight singleFlight;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight(meterRegistry);
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void execute_ShouldShareInFlightLoad_AndCountSavedCalls() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("sunForecast", "london", () -> {
+                loads.incrementAndGet();
+                awaitQuietly(release);
+                return "forecast";
+            })));
+        }
+        await().atMost(Duration.ofSeconds(5)).until(() -> savedCalls("sunForecast") == CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("forecast", result.get());
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void execute_ShouldShareFailure_WithWaitingCallers() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> singleFlight.execute("cityCoordinates", "atlantis", () -> {
+            started.countDown();
+            awaitQuietly(release);
+            throw new IllegalStateException("not found");
+        }));
+        started.await();
+        Future<String> follower = executor.submit(() -> singleFlight.execute("cityCoordinates", "atlantis",
+                () -> "should not load"));
+        await().atMost(Duration.ofSeconds(5)).until(() -> savedCalls("cityCoordinates") == 1);
+        release.countDown();
+
+        ExecutionException leaderFailure = assertThrows(ExecutionException.class, leader::get);
+        ExecutionException followerFailure = assertThrows(ExecutionException.class, follower::get);
+        assertInstanceOf(IllegalStateException.class, leaderFailure.getCause());
+        assertInstanceOf(IllegalStateException.class, followerFailure.getCause());
+    }
+
+    @Test
+    void execute_ShouldLoadAgain_OnceFlightCompleted() {
+        AtomicInteger loads = new AtomicInteger();
+
+        singleFlight.execute("openMeteoForecast", "paris", loads::incrementAndGet);
+        singleFlight.execute("openMeteoForecast", "paris", loads::incrementAndGet);
+
+        assertEquals(2, loads.get());
+        assertEquals(0, savedCalls("openMeteoForecast"));
+    }
+
+    @Test
+    void execute_ShouldKeepLayersApart() {
+        String forecast = singleFlight.execute("sunForecast", "rome", () ->
+                singleFlight.execute("openMeteoForecast", "rome", () -> "weather") + "+sun");
+
+        assertEquals("weather+sun", forecast);
+    }
+
+    private double savedCalls(String layer) {
+        var counter = meterRegistry.find(SingleFlight.SAVED_CALLS_METRIC).tag("layer", layer).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package com.example.sunrisesunsetforecast.client;
 
+import com.example.sunrisesunsetforecast.cache.SingleFlight;
 import com.example.sunrisesunsetforecast.client.dto.OpenMeteoResponse;
+import com.example.sunrisesunsetforecast.config.ResilienceProperties;
 import com.example.sunrisesunsetforecast.model.Coordinates;
+import com.example.sunrisesunsetforecast.resilience.UpstreamGuards;
 import com.example.sunrisesunsetforecast.service.GeocodingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,6 +15,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClient.RequestHeadersSpec;
@@ -20,7 +26,7 @@ import reactor.core.publisher.Mono;
 import java.net.URI;
 
 import java.time.LocalDate;
-import java.util.Collections;
+import java.time.ZoneOffset;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -46,6 +52,12 @@ class OpenMeteoClientTest {
     @Mock
     private GeocodingService geocodingService;
 
+    @Spy
+    private SingleFlight singleFlight = new SingleFlight(new SimpleMeterRegistry());
+
+    @Spy
+    private UpstreamGuards upstreamGuards = new UpstreamGuards(new ResilienceProperties(), new SimpleMeterRegistry(), ObservationRegistry.NOOP);
+
     @Captor
     private ArgumentCaptor<URI> uriCaptor;
 
@@ -78,16 +90,16 @@ class OpenMeteoClientTest {
         Coordinates coordinates = new Coordinates(51.5074, -0.1278);
         
         // Create a properly formatted response with date and time
-        String date = LocalDate.now().plusDays(1).toString();
-        String sunriseTime = "09:00";
-        String sunsetTime = "20:00";
+        LocalDate date = LocalDate.now().plusDays(1);
+        long sunriseTime = date.atTime(9, 0).toEpochSecond(ZoneOffset.UTC);
+        long sunsetTime = date.atTime(20, 0).toEpochSecond(ZoneOffset.UTC);
         
         OpenMeteoResponse expectedResponse = new OpenMeteoResponse();
         OpenMeteoResponse.Daily daily = new OpenMeteoResponse.Daily();
-        daily.setSunriseTimes(Collections.singletonList(date + "T" + sunriseTime));
-        daily.setSunsetTimes(Collections.singletonList(date + "T" + sunsetTime));
-        daily.setTemperature2mMax(Collections.singletonList(25.0));
-        daily.setWeatherCode(Collections.singletonList(0));
+        daily.setSunriseTimes(new long[]{sunriseTime});
+        daily.setSunsetTimes(new long[]{sunsetTime});
+        daily.setTemperature2mMax(new double[]{25.0});
+        daily.setWeatherCode(new int[]{0});
         expectedResponse.setDaily(daily);
         
         // Mock the geocoding service to return coordinates
@@ -102,10 +114,10 @@ class OpenMeteoClientTest {
         // Assert
         assertNotNull(response);
         assertNotNull(response.getDaily());
-        assertEquals(1, response.getDaily().getSunriseTimes().size());
-        assertEquals(1, response.getDaily().getSunsetTimes().size());
-        assertEquals(date + "T" + sunriseTime, response.getDaily().getSunriseTimes().get(0));
-        assertEquals(date + "T" + sunsetTime, response.getDaily().getSunsetTimes().get(0));
+        assertEquals(1, response.getDaily().getSunriseTimes().length);
+        assertEquals(1, response.getDaily().getSunsetTimes().length);
+        assertEquals(sunriseTime, response.getDaily().getSunriseTimes()[0]);
+        assertEquals(sunsetTime, response.getDaily().getSunsetTimes()[0]);
         
         // Verify the WebClient was called with the correct parameters
         verify(webClient).get();
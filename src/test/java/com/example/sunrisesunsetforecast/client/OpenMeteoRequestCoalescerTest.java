@@ -0,0 +1,90 @@
+package com.example.sunrisesunsetforecast.client;
+
+import com.example.sunrisesunsetforecast.client.dto.OpenMeteoResponse;
+import com.example.sunrisesunsetforecast.exception.ExternalServiceException;
+import com.example.sunrisesunsetforecast.model.Coordinates;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenMeteoRequestCoalescerTest {
+
+    private final List<List<Coordinates>> requests = new CopyOnWriteArrayList<>();
+    private OpenMeteoRequestCoalescer coalescer;
+
+    @AfterEach
+    void tearDown() {
+        coalescer.shutdown();
+    }
+
+    @Test
+    void submit_ShouldSendLookupsWithinWindowAsOneRequest() {
+        coalescer = new OpenMeteoRequestCoalescer(this::echo, Duration.ofMillis(50), 10);
+
+        CompletableFuture<OpenMeteoResponse> london = coalescer.submit(new Coordinates(51.5, -0.1));
+        CompletableFuture<OpenMeteoResponse> paris = coalescer.submit(new Coordinates(48.9, 2.4));
+        CompletableFuture<OpenMeteoResponse> tokyo = coalescer.submit(new Coordinates(35.7, 139.8));
+
+        assertEquals(51.5, london.join().getLatitude());
+        assertEquals(48.9, paris.join().getLatitude());
+        assertEquals(35.7, tokyo.join().getLatitude());
+        assertEquals(1, requests.size());
+        assertEquals(3, requests.get(0).size());
+    }
+
+    @Test
+    void submit_ShouldFlushImmediately_WhenBatchIsFull() {
+        coalescer = new OpenMeteoRequestCoalescer(this::echo, Duration.ofMinutes(1), 2);
+
+        CompletableFuture<OpenMeteoResponse> first = coalescer.submit(new Coordinates(1, 1));
+        CompletableFuture<OpenMeteoResponse> second = coalescer.submit(new Coordinates(2, 2));
+
+        assertEquals(1, first.join().getLatitude());
+        assertEquals(2, second.join().getLatitude());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void submit_ShouldFailEveryCaller_WhenRequestFails() {
+        coalescer = new OpenMeteoRequestCoalescer(
+                locations -> Mono.error(new IllegalStateException("boom")), Duration.ofMillis(10), 10);
+
+        CompletableFuture<OpenMeteoResponse> first = coalescer.submit(new Coordinates(1, 1));
+        CompletableFuture<OpenMeteoResponse> second = coalescer.submit(new Coordinates(2, 2));
+
+        CompletionException error = assertThrows(CompletionException.class, first::join);
+        assertInstanceOf(ExternalServiceException.class, error.getCause());
+        assertThrows(CompletionException.class, second::join);
+    }
+
+    @Test
+    void submit_ShouldFailEveryCaller_WhenResultCountDoesNotMatch() {
+        coalescer = new OpenMeteoRequestCoalescer(
+                locations -> Mono.just(List.of(new OpenMeteoResponse())), Duration.ofMillis(10), 10);
+
+        CompletableFuture<OpenMeteoResponse> first = coalescer.submit(new Coordinates(1, 1));
+        CompletableFuture<OpenMeteoResponse> second = coalescer.submit(new Coordinates(2, 2));
+
+        assertThrows(CompletionException.class, first::join);
+        assertThrows(CompletionException.class, second::join);
+    }
+
+    private Mono<List<OpenMeteoResponse>> echo(List<Coordinates> locations) {
+        requests.add(List.copyOf(locations));
+        return Mono.just(locations.stream().map(location -> {
+            OpenMeteoResponse response = new OpenMeteoResponse();
+            response.setLatitude(location.getLatitude());
+            response.setLongitude(location.getLongitude());
+            return response;
+        }).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.sunrisesunsetforecast.client.dto;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenMeteoDailyDeserializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void decodesDailyBlockIntoColumns() throws Exception {
+        String json = """
+                {"latitude":51.5,"longitude":-0.12,"utc_offset_seconds":3600,
+                 "daily":{"time":["2024-02-28","2024-02-29"],
+                          "uv_index_max":[{"unexpected":true},2.1],
+                          "sunrise":["2024-02-28T06:51","2024-02-29T06:49:30"],
+                          "sunset":["2024-02-28T17:39","2024-02-29T17:41"],
+                          "temperature_2m_max":[9.5,11],
+                          "weathercode":[61,3]}}""";
+
+        OpenMeteoResponse response = objectMapper.readValue(json, OpenMeteoResponse.class);
+
+        OpenMeteoResponse.Daily daily = response.getDaily();
+        assertEquals(3600, response.getUtcOffsetSeconds());
+        assertArrayEquals(new long[]{localSeconds(LocalDate.of(2024, 2, 28).atStartOfDay()),
+                localSeconds(LocalDate.of(2024, 2, 29).atStartOfDay())}, daily.getTime());
+        assertArrayEquals(new long[]{localSeconds(LocalDateTime.of(2024, 2, 28, 6, 51)),
+                localSeconds(LocalDateTime.of(2024, 2, 29, 6, 49, 30))}, daily.getSunriseTimes());
+        assertArrayEquals(new long[]{localSeconds(LocalDateTime.of(2024, 2, 28, 17, 39)),
+                localSeconds(LocalDateTime.of(2024, 2, 29, 17, 41))}, daily.getSunsetTimes());
+        assertArrayEquals(new double[]{9.5, 11.0}, daily.getTemperature2mMax());
+        assertArrayEquals(new int[]{61, 3}, daily.getWeatherCode());
+    }
+
+    @Test
+    void marksNullEntriesAsMissing() throws Exception {
+        String json = """
+                {"time":["1969-12-31"],"sunrise":[null],"sunset":null,
+                 "temperature_2m_max":[null],"weathercode":[null]}""";
+
+        OpenMeteoResponse.Daily daily = objectMapper.readValue(json, OpenMeteoResponse.Daily.class);
+
+        assertArrayEquals(new long[]{-86_400}, daily.getTime());
+        assertArrayEquals(new long[]{OpenMeteoResponse.Daily.NO_TIME}, daily.getSunriseTimes());
+        assertNull(daily.getSunsetTimes());
+        assertTrue(Double.isNaN(daily.getTemperature2mMax()[0]));
+        assertArrayEquals(new int[]{OpenMeteoResponse.Daily.NO_WEATHER_CODE}, daily.getWeatherCode());
+    }
+
+    @Test
+    void readsBackWhatItWrites() throws Exception {
+        // The persistent cache stores the columns as numbers
+        OpenMeteoResponse.Daily daily = new OpenMeteoResponse.Daily();
+        daily.setTime(new long[]{localSeconds(LocalDate.of(2024, 6, 1).atStartOfDay())});
+        daily.setSunriseTimes(new long[]{OpenMeteoResponse.Daily.NO_TIME});
+        daily.setSunsetTimes(new long[]{localSeconds(LocalDateTime.of(2024, 6, 1, 21, 15))});
+        daily.setTemperature2mMax(new double[]{Double.NaN});
+        daily.setWeatherCode(new int[]{95});
+
+        String json = objectMapper.writeValueAsString(daily);
+
+        assertEquals(daily, objectMapper.readValue(json, OpenMeteoResponse.Daily.class));
+    }
+
+    @Test
+    void rejectsTimesItCannotRead() {
+        assertThrows(JsonMappingException.class,
+                () -> objectMapper.readValue("{\"sunrise\":[\"2024-02-30T06:00\"]}", OpenMeteoResponse.Daily.class));
+        assertThrows(JsonMappingException.class,
+                () -> objectMapper.readValue("{\"sunrise\":[\"2024-06-01T06:00Z\"]}", OpenMeteoResponse.Daily.class));
+        assertThrows(JsonMappingException.class,
+                () -> objectMapper.readValue("{\"time\":[\"01/06/2024\"]}", OpenMeteoResponse.Daily.class));
+    }
+
+    private static long localSeconds(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+}
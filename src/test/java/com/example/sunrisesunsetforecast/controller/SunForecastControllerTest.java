@@ -1,30 +1,72 @@
 package com.example.sunrisesunsetforecast.controller;
 
+import com.example.sunrisesunsetforecast.cache.CacheFreshness;
+import com.example.sunrisesunsetforecast.cache.ResponseBytesCache;
+import com.example.sunrisesunsetforecast.dto.BatchForecastItem;
+import com.example.sunrisesunsetforecast.dto.BatchForecastResponse;
+import com.example.sunrisesunsetforecast.dto.ForecastUpdate;
 import com.example.sunrisesunsetforecast.dto.SunForecastResponse;
+import com.example.sunrisesunsetforecast.exception.ExternalServiceException;
+import com.example.sunrisesunsetforecast.popularity.CityPopularity;
+import com.example.sunrisesunsetforecast.service.BatchForecastService;
+import com.example.sunrisesunsetforecast.service.ReactiveSunForecastService;
 import com.example.sunrisesunsetforecast.service.SunForecastService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@WebMvcTest(SunForecastController.class)
+@WebMvcTest(controllers = SunForecastController.class, properties = "forecast.response-bytes.gzip=true")
+@Import({ResponseBytesCache.class, CityPopularity.class})
 class SunForecastControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private CityPopularity cityPopularity;
+
     @MockBean
     private SunForecastService sunForecastService;
 
+    @MockBean
+    private BatchForecastService batchForecastService;
+
+    @MockBean
+    private ReactiveSunForecastService reactiveSunForecastService;
+
+    @MockBean
+    private CacheFreshness cacheFreshness;
+
     private SunForecastResponse mockResponse;
 
     @BeforeEach
@@ -40,6 +82,7 @@ class SunForecastControllerTest {
     @Test
     void getSunForecast_ValidCity_ReturnsOk() throws Exception {
         when(sunForecastService.getSunForecast(anyString())).thenReturn(mockResponse);
+        long requested = cityPopularity.estimate("Berlin");
 
         mockMvc.perform(get("/api/sun-forecast")
                         .param("city", "Berlin"))
@@ -48,6 +91,84 @@ class SunForecastControllerTest {
                 .andExpect(jsonPath("$.sunrise").isNotEmpty())
                 .andExpect(jsonPath("$.sunset").isNotEmpty())
                 .andExpect(jsonPath("$.enhancedMessage").isNotEmpty());
+
+        assertThat(cityPopularity.estimate("berlin")).isEqualTo(requested + 1);
+    }
+
+    @Test
+    void getSunForecast_AcceptsGzip_ReturnsCompressedJson() throws Exception {
+        when(sunForecastService.getSunForecast(anyString())).thenReturn(mockResponse);
+
+        MvcResult result = mockMvc.perform(get("/api/sun-forecast")
+                        .param("city", "Berlin")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "br;q=1.0, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).contains("\"city\":\"Berlin\"");
+        }
+    }
+
+    @Test
+    void getSunForecast_RefusesGzip_ReturnsPlainJson() throws Exception {
+        when(sunForecastService.getSunForecast(anyString())).thenReturn(mockResponse);
+
+        mockMvc.perform(get("/api/sun-forecast")
+                        .param("city", "Berlin")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(jsonPath("$.city").value("Berlin"));
+    }
+
+    @Test
+    void getSunForecast_MatchingIfNoneMatch_ReturnsNotModified() throws Exception {
+        when(sunForecastService.getSunForecast(anyString())).thenReturn(mockResponse);
+
+        String etag = mockMvc.perform(get("/api/sun-forecast")
+                        .param("city", "Berlin"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/sun-forecast")
+                        .param("city", "Berlin")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"stale\", " + etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/api/sun-forecast")
+                        .param("city", "Berlin")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+
+    @Test
+    void getSunForecast_CachedForecast_IsCacheableUntilItsEntryGoesStale() throws Exception {
+        when(sunForecastService.getSunForecast(anyString())).thenReturn(mockResponse);
+        when(cacheFreshness.of(eq("sunForecast"), eq("berlin"), any()))
+                .thenReturn(Optional.of(new CacheFreshness.Freshness(Duration.ofMinutes(20), Duration.ofMinutes(40))));
+
+        mockMvc.perform(get("/api/sun-forecast")
+                        .param("city", "Berlin"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=1200, public, stale-while-revalidate=2400"));
+    }
+
+    @Test
+    void getSunForecast_UncachedForecast_MustBeRevalidated() throws Exception {
+        when(sunForecastService.getSunForecast(anyString())).thenReturn(mockResponse);
+
+        mockMvc.perform(get("/api/sun-forecast")
+                        .param("city", "Berlin"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
     }
 
     @Test
@@ -62,4 +183,105 @@ class SunForecastControllerTest {
                         .param("city", ""))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void getSunForecasts_ValidBatch_ReturnsPerCityResults() throws Exception {
+        BatchForecastResponse batchResponse = BatchForecastResponse.builder()
+                .results(List.of(
+                        BatchForecastItem.builder().city("Berlin").forecast(mockResponse).cached(true).build(),
+                        BatchForecastItem.builder().city("Atlantis").error("No coordinates found for city: Atlantis").latencyMs(42).build()))
+                .succeeded(1)
+                .failed(1)
+                .build();
+        when(batchForecastService.getSunForecasts(anyList())).thenReturn(batchResponse);
+        long requested = cityPopularity.estimate("Atlantis");
+
+        mockMvc.perform(post("/api/sun-forecast/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cities\":[\"Berlin\",\"Atlantis\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].forecast.city").value("Berlin"))
+                .andExpect(jsonPath("$.results[0].cached").value(true))
+                .andExpect(jsonPath("$.results[1].error").isNotEmpty())
+                .andExpect(jsonPath("$.results[1].latencyMs").value(42))
+                .andExpect(jsonPath("$.failed").value(1));
+
+        assertThat(cityPopularity.estimate("Atlantis")).isEqualTo(requested + 1);
+    }
+
+    @Test
+    void getSunForecasts_EmptyBatch_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(post("/api/sun-forecast/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cities\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getSunForecasts_InvalidCityName_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(post("/api/sun-forecast/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cities\":[\"Berlin\",\"<script>\"]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getSunForecastAsync_ValidCity_ReturnsOk() throws Exception {
+        when(reactiveSunForecastService.getSunForecast(anyString())).thenReturn(Mono.just(mockResponse));
+
+        MvcResult result = mockMvc.perform(get("/api/sun-forecast/async")
+                        .param("city", "Berlin"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.city").value("Berlin"))
+                .andExpect(jsonPath("$.enhancedMessage").isNotEmpty());
+    }
+
+    @Test
+    void getSunForecastAsync_InvalidCity_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/sun-forecast/async")
+                        .param("city", "Berlin1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamSunForecast_ShouldSendForecastTokensThenDescription() throws Exception {
+        SunForecastResponse withoutMessage = mockResponse.toBuilder().enhancedMessage(null).build();
+        when(reactiveSunForecastService.streamSunForecast(anyString())).thenReturn(Flux.just(
+                ForecastUpdate.forecast(withoutMessage),
+                ForecastUpdate.token("In"),
+                ForecastUpdate.token(" Berlin"),
+                ForecastUpdate.description(mockResponse)));
+
+        MvcResult result = mockMvc.perform(get("/api/sun-forecast/stream")
+                        .param("city", "Berlin"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(containsString("event:forecast\ndata:{\"city\":\"Berlin\",\"sunrise\"")))
+                .andExpect(content().string(containsString("event:token\ndata:{\"token\":\" Berlin\"}")))
+                .andExpect(content().string(containsString("event:description\ndata:{\"city\":\"Berlin\",\"enhancedMessage\"")))
+                .andExpect(content().string(not(containsString("event:error"))));
+    }
+
+    @Test
+    void streamSunForecast_ShouldSendErrorEvent_WhenForecastFails() throws Exception {
+        when(reactiveSunForecastService.streamSunForecast(anyString()))
+                .thenReturn(Flux.error(new ExternalServiceException("Could not find coordinates for city: Atlantis")));
+
+        MvcResult result = mockMvc.perform(get("/api/sun-forecast/stream")
+                        .param("city", "Atlantis"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(content().string(containsString("event:error")))
+                .andExpect(content().string(containsString("Could not find coordinates for city: Atlantis")));
+    }
 }
@@ -0,0 +1,111 @@
+package com.example.sunrisesunsetforecast.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.slf4j.event.KeyValuePair;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestSummaryFilterTest {
+
+    private final Logger summaryLogger = (Logger) LoggerFactory.getLogger(RequestSummaryFilter.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final DiagnosticSamplingFilter samplingFilter = new DiagnosticSamplingFilter();
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        summaryLogger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        summaryLogger.detachAppender(appender);
+    }
+
+    @Test
+    void doFilter_ShouldLogOneSummaryLine_WithTheRequestFields() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/sun-forecast");
+        request.setParameter("city", "London");
+        request.addHeader(RequestSummaryFilter.REQUEST_ID_HEADER, "abc123");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Map<String, String> mdc = new HashMap<>();
+
+        new RequestSummaryFilter(1.0).doFilter(request, response, (req, res) -> mdc.putAll(MDC.getCopyOfContextMap()));
+
+        assertEquals(Map.of(RequestSummaryFilter.REQUEST_ID, "abc123", RequestSummaryFilter.SAMPLED, "true"), mdc);
+        assertNull(MDC.get(RequestSummaryFilter.REQUEST_ID));
+        assertEquals(1, appender.list.size());
+        Map<String, Object> fields = new HashMap<>();
+        for (KeyValuePair pair : appender.list.get(0).getKeyValuePairs()) {
+            fields.put(pair.key, pair.value);
+        }
+        assertEquals("/api/sun-forecast", fields.get("path"));
+        assertEquals("London", fields.get("city"));
+        assertEquals(200, fields.get("status"));
+        assertEquals("abc123", fields.get(RequestSummaryFilter.REQUEST_ID));
+    }
+
+    @Test
+    void doFilter_ShouldDropDebugLines_OfUnsampledRequests() throws Exception {
+        Map<Level, FilterReply> replies = new HashMap<>();
+
+        new RequestSummaryFilter(0.0).doFilter(new MockHttpServletRequest("GET", "/api/sun-forecast"),
+                new MockHttpServletResponse(), (req, res) -> {
+                    replies.put(Level.DEBUG, samplingFilter.decide(null, summaryLogger, Level.DEBUG, "diagnostic", null, null));
+                    replies.put(Level.WARN, samplingFilter.decide(null, summaryLogger, Level.WARN, "warning", null, null));
+                });
+
+        assertEquals(Map.of(Level.DEBUG, FilterReply.DENY, Level.WARN, FilterReply.NEUTRAL), replies);
+        assertEquals(FilterReply.NEUTRAL, samplingFilter.decide(null, summaryLogger, Level.DEBUG, "background", null, null));
+    }
+
+    @Test
+    void doFilter_ShouldLogDebugLinesOfSampledRequests_OnTheThreadsTheirWorkIsHandedTo() throws Exception {
+        Logger libraryLogger = (Logger) LoggerFactory.getLogger("org.example.library");
+        Map<String, FilterReply> replies = new HashMap<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            new RequestSummaryFilter(1.0).doFilter(new MockHttpServletRequest("GET", "/api/sun-forecast"),
+                    new MockHttpServletResponse(), (req, res) -> {
+                        Runnable task = LoggingContext.wrap(() -> {
+                            replies.put("application", samplingFilter.decide(null, summaryLogger, Level.DEBUG, "diagnostic", null, null));
+                            replies.put("library", samplingFilter.decide(null, libraryLogger, Level.DEBUG, "diagnostic", null, null));
+                        });
+                        try {
+                            executor.submit(task).get();
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    });
+            executor.submit(() -> replies.put("after", samplingFilter.decide(null, summaryLogger, Level.DEBUG, "background", null, null))).get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(Map.of("application", FilterReply.ACCEPT, "library", FilterReply.NEUTRAL, "after", FilterReply.NEUTRAL), replies);
+    }
+
+    @Test
+    void doFilter_ShouldSkipNonApiRequests() throws Exception {
+        new RequestSummaryFilter(1.0).doFilter(new MockHttpServletRequest("GET", "/actuator/prometheus"),
+                new MockHttpServletResponse(), (req, res) -> assertNull(MDC.get(RequestSummaryFilter.SAMPLED)));
+
+        assertTrue(appender.list.isEmpty());
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.sunrisesunsetforecast.popularity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CityPopularityTest {
+
+    @Test
+    void top_ShouldRankTheMostRequestedCities_AmongManyRareOnes() {
+        CityPopularity popularity = new CityPopularity(3, 256, 4);
+        for (int i = 0; i < 2000; i++) {
+            popularity.record("Rare City " + i);
+            if (i % 4 == 0) {
+                popularity.record("London");
+            }
+            if (i % 5 == 0) {
+                popularity.record("paris");
+            }
+            if (i % 10 == 0) {
+                popularity.record("Berlin");
+            }
+        }
+
+        assertEquals(List.of("London", "paris", "Berlin"), popularity.top(3));
+        assertEquals(List.of("London"), popularity.top(1));
+        assertTrue(popularity.estimate("london") >= 500);
+    }
+
+    @Test
+    void record_ShouldCountCitiesCaseInsensitively_KeepingTheLatestSpelling() {
+        CityPopularity popularity = new CityPopularity(10, 256, 4);
+        popularity.record("new york");
+        popularity.record("New York");
+
+        assertEquals(2, popularity.estimate("NEW YORK"));
+        assertEquals(List.of("New York"), popularity.top(10));
+    }
+
+    @Test
+    void decay_ShouldLetNewlyPopularCitiesOvertakeFormerOnes() {
+        CityPopularity popularity = new CityPopularity(1, 256, 4);
+        for (int i = 0; i < 8; i++) {
+            popularity.record("Oslo");
+        }
+        popularity.decay();
+        popularity.decay();
+        for (int i = 0; i < 3; i++) {
+            popularity.record("Lima");
+        }
+
+        assertEquals(2, popularity.estimate("Oslo"));
+        assertEquals(List.of("Lima"), popularity.top(1));
+    }
+}
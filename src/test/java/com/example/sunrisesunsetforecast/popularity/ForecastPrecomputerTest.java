@@ -0,0 +1,169 @@
+package com.example.sunrisesunsetforecast.popularity;
+
+import com.example.sunrisesunsetforecast.cache.CacheRefreshRegistry;
+import com.example.sunrisesunsetforecast.config.ResilienceProperties;
+import com.example.sunrisesunsetforecast.dto.SunForecastResponse;
+import com.example.sunrisesunsetforecast.resilience.UpstreamGuard;
+import com.example.sunrisesunsetforecast.resilience.UpstreamGuards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForecastPrecomputerTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-06-01T00:05:00Z"), ZoneOffset.UTC);
+    private static final LocalDate TOMORROW = LocalDate.of(2024, 6, 2);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager("sunForecast");
+    private final CacheRefreshRegistry refreshRegistry = new CacheRefreshRegistry();
+    private final CityPopularity popularity = new CityPopularity(10, 256, 4);
+    private final List<String> computed = new CopyOnWriteArrayList<>();
+    private final List<ThreadPoolTaskExecutor> executors = new ArrayList<>();
+    private UpstreamGuards upstreamGuards;
+    private Cache cache;
+
+    @BeforeEach
+    void setUp() {
+        ResilienceProperties properties = new ResilienceProperties();
+        ResilienceProperties.Spec spec = new ResilienceProperties.Spec();
+        spec.setMinimumCalls(1);
+        properties.getUpstreams().put(UpstreamGuards.OPEN_ROUTER, spec);
+        upstreamGuards = new UpstreamGuards(properties, meterRegistry, ObservationRegistry.NOOP);
+        cache = cacheManager.getCache("sunForecast");
+        refreshRegistry.<SunForecastResponse>register("sunForecast", (key, previous) -> {
+            computed.add(key);
+            return forecast(key, TOMORROW, key.equals("Atlantis"));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        executors.forEach(ThreadPoolTaskExecutor::shutdown);
+    }
+
+    @Test
+    void precompute_ShouldCacheTomorrowsForecast_ForThePopularCities() {
+        record("London", 3);
+        record("Paris", 2);
+        record("Atlantis", 2);
+        record("Lima", 1);
+        cache.put("paris", forecast("Paris", TOMORROW, false));
+        cache.put("london", forecast("London", TOMORROW.minusDays(1), false));
+
+        precomputer(3, 2).precompute();
+
+        // Paris is already current, and Atlantis only got the template message
+        assertEquals(List.of("Atlantis", "London"), computed.stream().sorted().toList());
+        assertEquals(TOMORROW, cache.get("london", SunForecastResponse.class).getDate());
+        assertNull(cache.get("atlantis"));
+        assertNull(cache.get("lima"));
+        assertEquals(1.0, outcomes("computed"));
+        assertEquals(1.0, outcomes("current"));
+        assertEquals(1.0, outcomes("failed"));
+        // Counts are halved after the run
+        assertEquals(1, popularity.estimate("London"));
+    }
+
+    @Test
+    void precompute_ShouldSkipCachedForecast_ForTomorrow_EvenWithoutSunrise() {
+        record("Longyearbyen", 1);
+        // Polar night: the sun does not rise, so only the forecast's own date tells which day it is for
+        cache.put("longyearbyen", forecast("Longyearbyen", TOMORROW, false).toBuilder().sunrise(null).sunset(null).build());
+
+        precomputer(10, 1).precompute();
+
+        assertTrue(computed.isEmpty());
+        assertEquals(1.0, outcomes("current"));
+    }
+
+    @Test
+    void precompute_ShouldLeaveCitiesForLater_WhileACircuitIsOpen() {
+        record("London", 1);
+        UpstreamGuard openRouter = upstreamGuards.get(UpstreamGuards.OPEN_ROUTER);
+        assertThrows(IllegalStateException.class, () -> openRouter.call(() -> {
+            throw new IllegalStateException("503");
+        }));
+
+        precomputer(10, 1).precompute();
+
+        assertTrue(computed.isEmpty());
+        assertEquals(1.0, outcomes("deferred"));
+    }
+
+    @Test
+    void precompute_ShouldRunAtMostTheConfiguredCallsAtOnce() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostRunning = new AtomicInteger();
+        refreshRegistry.<SunForecastResponse>register("sunForecast", (key, previous) -> {
+            mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return forecast(key, TOMORROW, false);
+        });
+        for (int i = 0; i < 8; i++) {
+            record("City " + (char) ('A' + i), 1);
+        }
+
+        precomputer(8, 3).precompute();
+
+        assertEquals(8.0, outcomes("computed"));
+        assertTrue(mostRunning.get() <= 3, "at most 3 at once, was " + mostRunning.get());
+    }
+
+    private ForecastPrecomputer precomputer(int topN, int concurrency) {
+        return new ForecastPrecomputer(popularity, cacheManager, refreshRegistry, upstreamGuards, meterRegistry,
+                executor(concurrency), topN, CLOCK);
+    }
+
+    private ThreadPoolTaskExecutor executor(int concurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.initialize();
+        executors.add(executor);
+        return executor;
+    }
+
+    private void record(String city, int times) {
+        for (int i = 0; i < times; i++) {
+            popularity.record(city);
+        }
+    }
+
+    private double outcomes(String outcome) {
+        return meterRegistry.get(ForecastPrecomputer.PRECOMPUTED_METRIC).tag("outcome", outcome).counter().count();
+    }
+
+    private static SunForecastResponse forecast(String city, LocalDate date, boolean templateMessage) {
+        return SunForecastResponse.builder()
+                .city(city)
+                .date(date)
+                .sunrise(OffsetDateTime.of(date.atTime(5, 0), ZoneOffset.UTC))
+                .sunset(OffsetDateTime.of(date.atTime(21, 0), ZoneOffset.UTC))
+                .enhancedMessage("Forecast for " + city)
+                .templateMessage(templateMessage)
+                .build();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.sunrisesunsetforecast.resilience;
+
+import com.example.sunrisesunsetforecast.config.ResilienceProperties;
+import com.example.sunrisesunsetforecast.exception.ExternalServiceException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.micrometer.tagged.BulkheadMetricNames;
+import io.github.resilience4j.micrometer.tagged.CircuitBreakerMetricNames;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamGuardsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+    private UpstreamGuards upstreamGuards;
+
+    @BeforeEach
+    void setUp() {
+        ResilienceProperties properties = new ResilienceProperties();
+        ResilienceProperties.Spec spec = new ResilienceProperties.Spec();
+        spec.setMaxConcurrentCalls(1);
+        spec.setMinimumCalls(2);
+        properties.getUpstreams().put("openMeteo", spec);
+        observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        upstreamGuards = new UpstreamGuards(properties, meterRegistry, observationRegistry);
+    }
+
+    @Test
+    void guard_ShouldRejectCalls_BeyondTheConcurrencyLimit() {
+        UpstreamGuard guard = upstreamGuards.get(UpstreamGuards.OPEN_METEO);
+        Sinks.One<String> slowCall = Sinks.one();
+        guard.guard(slowCall.asMono()).subscribe();
+
+        ExternalServiceException rejected = assertThrows(ExternalServiceException.class,
+                () -> guard.guard(Mono.just("second")).block());
+        slowCall.tryEmitValue("first");
+
+        assertTrue(rejected.getMessage().contains("openMeteo"));
+        assertEquals("third", guard.guard(Mono.just("third")).block());
+        assertEquals(1.0, rejections("bulkhead_full"));
+    }
+
+    @Test
+    void call_ShouldFailFast_OnceTheCircuitIsOpen() {
+        UpstreamGuard guard = upstreamGuards.get(UpstreamGuards.OPEN_METEO);
+        for (int i = 0; i < 2; i++) {
+            assertThrows(IllegalStateException.class, () -> guard.call(() -> {
+                throw new IllegalStateException("503");
+            }));
+        }
+
+        assertThrows(ExternalServiceException.class, () -> guard.call(() -> "not called"));
+        assertEquals(1.0, rejections("circuit_open"));
+        assertEquals(1.0, meterRegistry.get(CircuitBreakerMetricNames.DEFAULT_CIRCUIT_BREAKER_STATE)
+                .tag("name", "openMeteo").tag("state", "open").gauge().value());
+        assertEquals(1.0, meterRegistry.get(BulkheadMetricNames.DEFAULT_BULKHEAD_AVAILABLE_CONCURRENT_CALLS_METRIC_NAME)
+                .tag("name", "openMeteo").gauge().value());
+    }
+
+    @Test
+    void call_ShouldCloseTheCircuit_OnceTheProbesAfterTheOpenDurationSucceed() {
+        ResilienceProperties.Spec spec = new ResilienceProperties.Spec();
+        spec.setMinimumCalls(1);
+        spec.setOpenDuration(Duration.ofMillis(100));
+        spec.setHalfOpenCalls(2);
+        ResilienceProperties properties = new ResilienceProperties();
+        properties.getUpstreams().put("openRouter", spec);
+        UpstreamGuard guard = new UpstreamGuards(properties, meterRegistry, observationRegistry).get(UpstreamGuards.OPEN_ROUTER);
+        assertThrows(IllegalStateException.class, () -> guard.call(() -> {
+            throw new IllegalStateException("503");
+        }));
+        assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitBreaker().getState());
+
+        // Half-open without a call having to ask first
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> guard.getCircuitBreaker().getState() == CircuitBreaker.State.HALF_OPEN);
+        assertEquals("probe", guard.call(() -> "probe"));
+        assertEquals("probe", guard.call(() -> "probe"));
+
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getCircuitBreaker().getState());
+    }
+
+    @Test
+    void guard_ShouldTimeCalls_ByOutcome() {
+        UpstreamGuard guard = upstreamGuards.get(UpstreamGuards.OPEN_METEO);
+        guard.guard(Mono.just("ok")).block();
+        guard.guard(Sinks.one().asMono()).subscribe().dispose();
+        assertThrows(IllegalStateException.class, () -> guard.guard(Mono.error(new IllegalStateException("503"))).block());
+
+        assertEquals(1, calls("success").count());
+        assertEquals(1, calls("failure").count());
+        assertEquals(1, calls("cancelled").count());
+    }
+
+    @Test
+    void get_ShouldUseDefaults_ForUnlistedUpstream() {
+        UpstreamGuard guard = upstreamGuards.get(UpstreamGuards.OPEN_ROUTER);
+
+        assertEquals(new ResilienceProperties.Spec().getMaxConcurrentCalls(), guard.getAvailableConcurrentCalls());
+        assertSame(guard, upstreamGuards.get(UpstreamGuards.OPEN_ROUTER));
+    }
+
+    private Timer calls(String outcome) {
+        return meterRegistry.get(UpstreamGuards.CALLS_METRIC)
+                .tag("upstream", "openMeteo").tag("outcome", outcome).timer();
+    }
+
+    private double rejections(String reason) {
+        return meterRegistry.get(UpstreamGuards.REJECTED_CALLS_METRIC)
+                .tag("upstream", "openMeteo").tag("reason", reason).counter().count();
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.sunrisesunsetforecast.service;
+
+import com.example.sunrisesunsetforecast.config.ResilienceProperties;
+import com.example.sunrisesunsetforecast.resilience.UpstreamGuards;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ForecastDescriptionServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 6, 21);
+
+    @Mock
+    private ChatLanguageModel chatLanguageModel;
+
+    @Mock
+    private StreamingChatLanguageModel streamingChatLanguageModel;
+
+    private ForecastDescriptionService forecastDescriptionService;
+
+    @BeforeEach
+    void setUp() {
+        forecastDescriptionService = new ForecastDescriptionService(chatLanguageModel, chatLanguageModel, streamingChatLanguageModel,
+                new ConcurrentMapCacheManager(ForecastDescriptionService.DESCRIPTION_CACHE), new ObjectMapper(),
+                Runnable::run, new UpstreamGuards(new ResilienceProperties(), new SimpleMeterRegistry(), ObservationRegistry.NOOP));
+    }
+
+    @Test
+    void generateForecastDescription_ShouldReuseMessage_ForNearIdenticalInputs() {
+        when(chatLanguageModel.generate(anyString())).thenReturn(" A bright day. ");
+
+        String first = forecastDescriptionService.generateForecastDescription(
+                "London", DATE, LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Clear");
+        String second = forecastDescriptionService.generateForecastDescription(
+                "london", DATE, LocalTime.of(4, 44), LocalTime.of(21, 19), 21.8, "Clear");
+
+        assertEquals("A bright day.", first);
+        assertEquals("A bright day.", second);
+        verify(chatLanguageModel, times(1)).generate(anyString());
+    }
+
+    @Test
+    void generateForecastDescription_ShouldPromptWithRoundedInputs() {
+        ArgumentCaptor<String> prompt = ArgumentCaptor.forClass(String.class);
+        when(chatLanguageModel.generate(prompt.capture())).thenReturn("A bright day.");
+
+        forecastDescriptionService.generateForecastDescription(
+                "London", DATE, LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Clear");
+
+        assertTrue(prompt.getValue().contains("Sunrise: 04:45"));
+        assertTrue(prompt.getValue().contains("Sunset: 21:20"));
+        assertTrue(prompt.getValue().contains("Temperature: 22.0°C"));
+    }
+
+    @Test
+    void generateForecastDescription_ShouldCallModel_WhenInputsDiffer() {
+        when(chatLanguageModel.generate(anyString())).thenReturn("A day.");
+
+        forecastDescriptionService.generateForecastDescription(
+                "London", DATE, LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Clear");
+        forecastDescriptionService.generateForecastDescription(
+                "London", DATE, LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Rain");
+        forecastDescriptionService.generateForecastDescription(
+                "London", DATE.plusDays(1), LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Clear");
+
+        verify(chatLanguageModel, times(3)).generate(anyString());
+    }
+
+    @Test
+    void generateForecastDescription_ShouldNotStoreFallback_WhenModelFails() {
+        when(chatLanguageModel.generate(anyString()))
+                .thenThrow(new RuntimeException("rate limited"))
+                .thenReturn("A bright day.");
+
+        String fallback = forecastDescriptionService.generateForecastDescription(
+                "London", DATE, LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Clear");
+        String retried = forecastDescriptionService.generateForecastDescription(
+                "London", DATE, LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Clear");
+
+        assertTrue(fallback.startsWith("In London, the sun will rise at 04:43"));
+        assertEquals("A bright day.", retried);
+    }
+
+    @Test
+    void describeForecast_ShouldAnswerWithTemplate_WhenBudgetRunsOut_AndStoreMessageWhenDone() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            forecastDescriptionService = new ForecastDescriptionService(chatLanguageModel, chatLanguageModel, streamingChatLanguageModel,
+                    new ConcurrentMapCacheManager(ForecastDescriptionService.DESCRIPTION_CACHE), new ObjectMapper(), executor,
+                    new UpstreamGuards(new ResilienceProperties(), new SimpleMeterRegistry(), ObservationRegistry.NOOP));
+            ReflectionTestUtils.setField(forecastDescriptionService, "latencyBudget", Duration.ofMillis(50));
+            CountDownLatch release = new CountDownLatch(1);
+            when(chatLanguageModel.generate(anyString())).thenAnswer(invocation -> {
+                release.await();
+                return "A bright day.";
+            });
+
+            ForecastDescriptionService.ForecastDescription first = forecastDescriptionService.describeForecast(
+                    "London", DATE, LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Clear");
+            ForecastDescriptionService.ForecastDescription second = forecastDescriptionService.describeForecast(
+                    "London", DATE, LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Clear");
+            release.countDown();
+            executor.submit(() -> { }).get(); // The generation has finished once the executor gets to this
+
+            assertTrue(first.template());
+            assertTrue(first.text().startsWith("In London, the sun will rise at 04:43"));
+            assertTrue(second.template());
+            assertEquals(new ForecastDescriptionService.ForecastDescription("A bright day.", false),
+                    forecastDescriptionService.describeForecast(
+                            "London", DATE, LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Clear"));
+            verify(chatLanguageModel, times(1)).generate(anyString());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void streamForecastDescription_ShouldEmitTokens_AndStoreFinishedText() {
+        doAnswer(invocation -> {
+            StreamingResponseHandler<AiMessage> handler = invocation.getArgument(1);
+            handler.onNext("A");
+            handler.onNext(" bright day.");
+            handler.onComplete(Response.from(AiMessage.from("A bright day.")));
+            return null;
+        }).when(streamingChatLanguageModel).generate(anyString(), any());
+
+        List<String> tokens = forecastDescriptionService.streamForecastDescription(
+                        "London", DATE, LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Clear")
+                .map(ForecastDescriptionService.ForecastDescription::text).collectList().block();
+        String stored = forecastDescriptionService.generateForecastDescription(
+                "London", DATE, LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Clear");
+
+        assertEquals(List.of("A", " bright day."), tokens);
+        assertEquals("A bright day.", stored);
+        verifyNoInteractions(chatLanguageModel);
+    }
+
+    @Test
+    void streamForecastDescription_ShouldEmitStoredMessage_AsSingleChunk() {
+        when(chatLanguageModel.generate(anyString())).thenReturn("A bright day.");
+        forecastDescriptionService.generateForecastDescription(
+                "London", DATE, LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Clear");
+
+        List<ForecastDescriptionService.ForecastDescription> chunks = forecastDescriptionService.streamForecastDescription(
+                "London", DATE, LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Clear").collectList().block();
+
+        assertEquals(List.of(new ForecastDescriptionService.ForecastDescription("A bright day.", false)), chunks);
+        verifyNoInteractions(streamingChatLanguageModel);
+    }
+
+    @Test
+    void streamForecastDescription_ShouldEmitFallback_WhenModelFailsBeforeFirstToken() {
+        doAnswer(invocation -> {
+            StreamingResponseHandler<AiMessage> handler = invocation.getArgument(1);
+            handler.onError(new RuntimeException("rate limited"));
+            return null;
+        }).when(streamingChatLanguageModel).generate(anyString(), any());
+
+        List<ForecastDescriptionService.ForecastDescription> chunks = forecastDescriptionService.streamForecastDescription(
+                "London", DATE, LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Clear").collectList().block();
+
+        assertEquals(1, chunks.size());
+        assertTrue(chunks.get(0).text().startsWith("In London, the sun will rise at 04:43"));
+        assertTrue(chunks.get(0).template());
+    }
+
+    @Test
+    void generateForecastDescription_ShouldGenerateConcurrentMisses_WithOneBatchedPrompt() {
+        enableBatching(3);
+        when(chatLanguageModel.generate(contains("JSON array"))).thenAnswer(invocation -> {
+            // Answer in prompt order so that the test sees whether messages go back to the right city
+            Matcher location = Pattern.compile("Location: (\\w+);").matcher(invocation.getArgument(0, String.class));
+            List<String> messages = new ArrayList<>();
+            while (location.find()) {
+                messages.add("\"Sunny in " + location.group(1) + ".\"");
+            }
+            return "Here you go:\n[" + String.join(",", messages) + "]";
+        });
+
+        List<String> messages = generateConcurrently("London", "Paris", "Berlin");
+
+        assertEquals(List.of("Sunny in London.", "Sunny in Paris.", "Sunny in Berlin."), messages);
+        verify(chatLanguageModel, times(1)).generate(anyString());
+        assertEquals("Sunny in Paris.", forecastDescriptionService.generateForecastDescription(
+                "Paris", DATE, LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Clear"));
+    }
+
+    @Test
+    void generateForecastDescription_ShouldGenerateOneByOne_WhenBatchResponseCannotBeParsed() {
+        enableBatching(2);
+        when(chatLanguageModel.generate(contains("JSON array"))).thenReturn("Sorry, here are your forecasts: ...");
+        when(chatLanguageModel.generate(contains("Please provide"))).thenReturn("A bright day.");
+
+        List<String> messages = generateConcurrently("London", "Paris");
+
+        assertEquals(List.of("A bright day.", "A bright day."), messages);
+        verify(chatLanguageModel, times(3)).generate(anyString());
+    }
+
+    @Test
+    void generateForecastDescription_ShouldKeepCompletedMessages_WhenBatchResponseIsCutOff() {
+        enableBatching(3);
+        when(chatLanguageModel.generate(contains("JSON array"))).thenAnswer(invocation -> {
+            // Out of tokens halfway through the last message
+            Matcher location = Pattern.compile("Location: (\\w+);").matcher(invocation.getArgument(0, String.class));
+            List<String> messages = new ArrayList<>();
+            while (location.find()) {
+                messages.add("\"Sunny in " + location.group(1) + ".\"");
+            }
+            String response = "[" + String.join(", ", messages);
+            return response.substring(0, response.length() - 6);
+        });
+        when(chatLanguageModel.generate(contains("Please provide"))).thenReturn("A bright day.");
+
+        List<String> messages = generateConcurrently("London", "Paris", "Berlin");
+
+        // The two completed messages are kept, only the cut off one is generated again
+        List<String> expected = List.of("Sunny in London.", "Sunny in Paris.", "Sunny in Berlin.");
+        for (int i = 0; i < messages.size(); i++) {
+            assertTrue(messages.get(i).equals(expected.get(i)) || messages.get(i).equals("A bright day."), messages.get(i));
+        }
+        assertEquals(1, messages.stream().filter("A bright day."::equals).count());
+        verify(chatLanguageModel, times(2)).generate(anyString());
+    }
+
+    @Test
+    void generateForecastDescription_ShouldUseFallback_WhenBatchedCallFails() {
+        enableBatching(2);
+        when(chatLanguageModel.generate(anyString())).thenThrow(new RuntimeException("rate limited"));
+
+        List<String> messages = generateConcurrently("London", "Paris");
+
+        assertTrue(messages.get(0).startsWith("In London, the sun will rise at 04:43"));
+        assertTrue(messages.get(1).startsWith("In Paris, the sun will rise at 04:43"));
+        verify(chatLanguageModel, times(1)).generate(anyString());
+    }
+
+    @Test
+    void describeForecast_ShouldAnswerWithBatchedMessage_WithinTheDefaultBudget() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            forecastDescriptionService = new ForecastDescriptionService(chatLanguageModel, chatLanguageModel, streamingChatLanguageModel,
+                    new ConcurrentMapCacheManager(ForecastDescriptionService.DESCRIPTION_CACHE), new ObjectMapper(), executor,
+                    new UpstreamGuards(new ResilienceProperties(), new SimpleMeterRegistry(), ObservationRegistry.NOOP));
+            ReflectionTestUtils.setField(forecastDescriptionService, "latencyBudget", Duration.ofMillis(800));
+            ReflectionTestUtils.setField(forecastDescriptionService, "batchEnabled", true);
+            ReflectionTestUtils.setField(forecastDescriptionService, "batchWindow", Duration.ofMillis(100));
+            ReflectionTestUtils.setField(forecastDescriptionService, "batchMaxSize", 10);
+            forecastDescriptionService.init();
+            // A lone miss waits out the whole window before its prompt, then the model takes most of the budget
+            when(chatLanguageModel.generate(anyString())).thenAnswer(invocation -> {
+                Thread.sleep(700);
+                return "A bright day.";
+            });
+
+            ForecastDescriptionService.ForecastDescription description = forecastDescriptionService.describeForecast(
+                    "London", DATE, LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Clear");
+
+            assertEquals(new ForecastDescriptionService.ForecastDescription("A bright day.", false), description);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void generateForecastDescription_ShouldLeaveOutMissingSunTimes_InFallback() {
+        when(chatLanguageModel.generate(anyString())).thenThrow(new RuntimeException("rate limited"));
+
+        String noSunset = forecastDescriptionService.generateForecastDescription(
+                "Tromso", DATE, LocalTime.of(1, 10), null, 12.0, "Clear");
+        String noSunTimes = forecastDescriptionService.generateForecastDescription(
+                "Tromso", DATE.plusDays(1), null, null, 12.0, "Clear");
+
+        assertEquals("In Tromso, the sun will rise at 01:10. Expect clear with temperatures around 12.0°C. "
+                + "Have a wonderful day!", noSunset);
+        assertEquals("In Tromso, expect clear with temperatures around 12.0°C. Have a wonderful day!", noSunTimes);
+    }
+
+    private void enableBatching(int maxSize) {
+        ReflectionTestUtils.setField(forecastDescriptionService, "batchEnabled", true);
+        ReflectionTestUtils.setField(forecastDescriptionService, "batchWindow", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(forecastDescriptionService, "batchMaxSize", maxSize);
+        forecastDescriptionService.init();
+    }
+
+    /**
+     * Requests a message for each city at once, so that they fill one batch.
+     */
+    private List<String> generateConcurrently(String... cities) {
+        ExecutorService executor = Executors.newFixedThreadPool(cities.length);
+        try {
+            List<CompletableFuture<String>> futures = Stream.of(cities)
+                    .map(city -> CompletableFuture.supplyAsync(() -> forecastDescriptionService.generateForecastDescription(
+                            city, DATE, LocalTime.of(4, 43), LocalTime.of(21, 21), 21.4, "Clear"), executor))
+                    .toList();
+            return futures.stream().map(CompletableFuture::join).toList();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.sunrisesunsetforecast.service.impl;
+
+import com.example.sunrisesunsetforecast.dto.BatchForecastItem;
+import com.example.sunrisesunsetforecast.dto.BatchForecastResponse;
+import com.example.sunrisesunsetforecast.dto.SunForecastResponse;
+import com.example.sunrisesunsetforecast.exception.ExternalServiceException;
+import com.example.sunrisesunsetforecast.service.SunForecastService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchForecastServiceImplTest {
+
+    @Mock
+    private SunForecastService sunForecastService;
+
+    private CacheManager cacheManager;
+    private ExecutorService executor;
+    private BatchForecastServiceImpl batchForecastService;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new ConcurrentMapCacheManager("sunForecast");
+        executor = Executors.newFixedThreadPool(4);
+        batchForecastService = new BatchForecastServiceImpl(sunForecastService, cacheManager, executor);
+        ReflectionTestUtils.setField(batchForecastService, "timeout", Duration.ofMillis(500));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void getSunForecasts_ShouldServeCacheHitsWithoutCallingService() {
+        SunForecastResponse berlin = forecast("Berlin");
+        cacheManager.getCache("sunForecast").put("berlin", berlin);
+
+        BatchForecastResponse response = batchForecastService.getSunForecasts(List.of("Berlin"));
+
+        BatchForecastItem item = response.getResults().get(0);
+        assertTrue(item.isCached());
+        assertSame(berlin, item.getForecast());
+        verifyNoInteractions(sunForecastService);
+    }
+
+    @Test
+    void getSunForecasts_ShouldReportPerCityErrors_WithoutFailingTheBatch() {
+        when(sunForecastService.getSunForecast("London")).thenReturn(forecast("London"));
+        when(sunForecastService.getSunForecast("Atlantis"))
+                .thenThrow(new ExternalServiceException("No coordinates found for city: Atlantis"));
+
+        BatchForecastResponse response = batchForecastService.getSunForecasts(List.of("London", "Atlantis"));
+
+        assertEquals(1, response.getSucceeded());
+        assertEquals(1, response.getFailed());
+        assertEquals("London", response.getResults().get(0).getForecast().getCity());
+        assertEquals("No coordinates found for city: Atlantis", response.getResults().get(1).getError());
+    }
+
+    @Test
+    void getSunForecasts_ShouldTimeOutSlowCity_AndKeepTheOthers() {
+        when(sunForecastService.getSunForecast("London")).thenReturn(forecast("London"));
+        when(sunForecastService.getSunForecast("Slowtown")).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return forecast("Slowtown");
+        });
+
+        BatchForecastResponse response = batchForecastService.getSunForecasts(List.of("Slowtown", "London"));
+
+        assertTrue(response.getResults().get(0).getError().startsWith("Timed out"));
+        assertNotNull(response.getResults().get(1).getForecast());
+        assertTrue(response.getLatencyMs() < 5_000, "Batch should not wait for the slow city");
+    }
+
+    @Test
+    void getSunForecasts_ShouldDropQueuedLookups_ThatTimedOutBeforeStarting() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            batchForecastService = new BatchForecastServiceImpl(sunForecastService, cacheManager, single);
+            ReflectionTestUtils.setField(batchForecastService, "timeout", Duration.ofMillis(100));
+            when(sunForecastService.getSunForecast("Slowtown")).thenAnswer(invocation -> {
+                Thread.sleep(300);
+                return forecast("Slowtown");
+            });
+
+            BatchForecastResponse response = batchForecastService.getSunForecasts(List.of("Slowtown", "London"));
+            single.submit(() -> null).get();
+
+            assertTrue(response.getResults().get(1).getError().startsWith("Timed out"));
+            verify(sunForecastService, never()).getSunForecast("London");
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    void getSunForecasts_ShouldReportRejectedLookups_AsPerCityErrors() {
+        batchForecastService = new BatchForecastServiceImpl(sunForecastService, cacheManager, task -> {
+            throw new RejectedExecutionException("Queue full");
+        });
+        ReflectionTestUtils.setField(batchForecastService, "timeout", Duration.ofMillis(500));
+
+        BatchForecastResponse response = batchForecastService.getSunForecasts(List.of("London"));
+
+        assertEquals(1, response.getFailed());
+        assertEquals("Too many forecasts in progress, try again later", response.getResults().get(0).getError());
+        verifyNoInteractions(sunForecastService);
+    }
+
+    @Test
+    void getSunForecasts_ShouldResolveRepeatedCityOnce_AndKeepRequestedSpelling() {
+        when(sunForecastService.getSunForecast("Paris")).thenReturn(forecast("Paris"));
+
+        BatchForecastResponse response = batchForecastService.getSunForecasts(List.of("Paris", "PARIS"));
+
+        assertEquals(2, response.getResults().size());
+        assertEquals("PARIS", response.getResults().get(1).getCity());
+        verify(sunForecastService, times(1)).getSunForecast(anyString());
+    }
+
+    private static SunForecastResponse forecast(String city) {
+        return SunForecastResponse.builder().city(city).enhancedMessage("Sunny in " + city).build();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.sunrisesunsetforecast.service.impl;
+
+import com.example.sunrisesunsetforecast.model.Coordinates;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GazetteerGeocodingServiceTest {
+
+    @Mock
+    private NominatimGeocodingService nominatimGeocodingService;
+
+    @TempDir
+    Path tempDir;
+
+    private GazetteerGeocodingService geocodingService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path source = tempDir.resolve("cities.txt");
+        Files.write(source, List.of(
+                geoNamesLine("London", "London", "Londres,Londra", 51.50853, -0.12574, 8961989),
+                geoNamesLine("London", "London", "", 42.98339, -81.23304, 346765),
+                geoNamesLine("Zürich", "Zurich", "", 47.36667, 8.55, 341730),
+                geoNamesLine("New York City", "New York City", "NYC", 40.71427, -74.00597, 8804190)));
+
+        geocodingService = new GazetteerGeocodingService(nominatimGeocodingService);
+        ReflectionTestUtils.setField(geocodingService, "source", source.toString());
+        ReflectionTestUtils.setField(geocodingService, "indexPath", tempDir.resolve("gazetteer.idx").toString());
+        ReflectionTestUtils.setField(geocodingService, "includeAlternateNames", true);
+        geocodingService.loadIndex();
+    }
+
+    @Test
+    void getCoordinates_ShouldPreferMostPopulousPlace_WhenNamesCollide() {
+        Coordinates coordinates = geocodingService.getCoordinates("London");
+
+        assertEquals(51.50853, coordinates.getLatitude());
+        assertEquals(-0.12574, coordinates.getLongitude());
+        verifyNoInteractions(nominatimGeocodingService);
+    }
+
+    @Test
+    void getCoordinates_ShouldMatchCaseAndWhitespaceInsensitively() {
+        assertNotNull(geocodingService.getCoordinates("  new   YORK city "));
+        assertNotNull(geocodingService.getCoordinates("ZÜRICH"));
+        assertNotNull(geocodingService.getCoordinates("zurich"));
+        assertNotNull(geocodingService.getCoordinates("NYC"));
+        verifyNoInteractions(nominatimGeocodingService);
+    }
+
+    @Test
+    void getCoordinates_ShouldFallBackToNominatim_WhenNameIsNotIndexed() {
+        Coordinates berlin = new Coordinates(52.5200, 13.4050);
+        when(nominatimGeocodingService.getCoordinates("Berlin")).thenReturn(berlin);
+
+        assertEquals(berlin, geocodingService.getCoordinates("Berlin"));
+        verify(nominatimGeocodingService).getCoordinates("Berlin");
+    }
+
+    @Test
+    void loadIndex_ShouldMapExistingIndex_WhenSourceIsNotNewer() throws IOException {
+        Path indexFile = tempDir.resolve("gazetteer.idx");
+        long builtAt = Files.getLastModifiedTime(indexFile).toMillis();
+
+        geocodingService.loadIndex();
+
+        assertEquals(builtAt, Files.getLastModifiedTime(indexFile).toMillis());
+        assertNotNull(geocodingService.getCoordinates("London"));
+    }
+
+    private static String geoNamesLine(String name, String asciiName, String alternateNames,
+                                       double latitude, double longitude, long population) {
+        return String.join("\t", "1", name, asciiName, alternateNames,
+                Double.toString(latitude), Double.toString(longitude),
+                "P", "PPL", "XX", "", "", "", "", "", Long.toString(population), "", "0", "Etc/UTC", "2024-01-01");
+    }
+}
@@ -3,7 +3,7 @@ package com.example.sunrisesunsetforecast.service.impl;
 import com.example.sunrisesunsetforecast.client.dto.OpenMeteoResponse;
 import org.junit.jupiter.api.Test;
 import java.time.LocalDate;
-import java.util.Collections;
+import java.time.ZoneOffset;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -12,23 +12,21 @@ class MakeDailyHelperTest extends SunForecastServiceImplTest {
     private OpenMeteoResponse.Daily makeDaily(int daysAhead) {
         OpenMeteoResponse.Daily daily = new OpenMeteoResponse.Daily();
         
-        // Set the date
-        String date = LocalDate.now().plusDays(daysAhead).toString();
-        daily.setTime(Collections.singletonList(date));
+        // Set the date (local midnight, in epoch seconds)
+        LocalDate date = LocalDate.now().plusDays(daysAhead);
+        daily.setTime(new long[]{date.atStartOfDay().toEpochSecond(ZoneOffset.UTC)});
         
-        // Set sunrise time (format: "yyyy-MM-dd'T'HH:mm")
-        String sunriseTime = date + "T06:00";
-        daily.setSunriseTimes(Collections.singletonList(sunriseTime));
+        // Set sunrise time (local wall-clock time, in epoch seconds)
+        daily.setSunriseTimes(new long[]{date.atTime(6, 0).toEpochSecond(ZoneOffset.UTC)});
         
-        // Set sunset time (format: "yyyy-MM-dd'T'HH:mm")
-        String sunsetTime = date + "T18:00";
-        daily.setSunsetTimes(Collections.singletonList(sunsetTime));
+        // Set sunset time (local wall-clock time, in epoch seconds)
+        daily.setSunsetTimes(new long[]{date.atTime(18, 0).toEpochSecond(ZoneOffset.UTC)});
         
         // Set temperature
-        daily.setTemperature2mMax(Collections.singletonList(25.0));
+        daily.setTemperature2mMax(new double[]{25.0});
         
         // Set weather code (0 = clear sky)
-        daily.setWeatherCode(Collections.singletonList(0));
+        daily.setWeatherCode(new int[]{0});
         
         return daily;
     }
@@ -37,33 +35,34 @@ class MakeDailyHelperTest extends SunForecastServiceImplTest {
     void makeDaily_ShouldCreateValidDailyObject() {
         // Arrange
         int daysAhead = 1;
-        String expectedDate = LocalDate.now().plusDays(daysAhead).toString();
+        LocalDate expectedDate = LocalDate.now().plusDays(daysAhead);
+        long expectedMidnight = expectedDate.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
         
         // Act
         OpenMeteoResponse.Daily daily = makeDaily(daysAhead);
         
         // Assert
         assertNotNull(daily, "Daily object should not be null");
-        assertNotNull(daily.getTime(), "Time list should not be null");
-        assertFalse(daily.getTime().isEmpty(), "Time list should not be empty");
-        assertEquals(expectedDate, daily.getTime().get(0), "Time should match expected date");
+        assertNotNull(daily.getTime(), "Time column should not be null");
+        assertEquals(1, daily.getTime().length, "Time column should have one day");
+        assertEquals(expectedMidnight, daily.getTime()[0], "Time should match expected date");
         
         assertNotNull(daily.getSunriseTimes(), "Sunrise times should not be null");
-        assertFalse(daily.getSunriseTimes().isEmpty(), "Sunrise times should not be empty");
-        assertTrue(daily.getSunriseTimes().get(0).startsWith(expectedDate + "T"), 
-            "Sunrise time should start with the expected date");
+        assertEquals(1, daily.getSunriseTimes().length, "Sunrise times should have one day");
+        assertEquals(expectedMidnight + 6 * 3600, daily.getSunriseTimes()[0],
+            "Sunrise time should fall on the expected date");
         
         assertNotNull(daily.getSunsetTimes(), "Sunset times should not be null");
-        assertFalse(daily.getSunsetTimes().isEmpty(), "Sunset times should not be empty");
-        assertTrue(daily.getSunsetTimes().get(0).startsWith(expectedDate + "T"),
-            "Sunset time should start with the expected date");
+        assertEquals(1, daily.getSunsetTimes().length, "Sunset times should have one day");
+        assertEquals(expectedMidnight + 18 * 3600, daily.getSunsetTimes()[0],
+            "Sunset time should fall on the expected date");
         
-        assertNotNull(daily.getTemperature2mMax(), "Temperature list should not be null");
-        assertFalse(daily.getTemperature2mMax().isEmpty(), "Temperature list should not be empty");
-        assertEquals(25.0, daily.getTemperature2mMax().get(0), "Temperature should be 25.0");
+        assertNotNull(daily.getTemperature2mMax(), "Temperature column should not be null");
+        assertEquals(1, daily.getTemperature2mMax().length, "Temperature column should have one day");
+        assertEquals(25.0, daily.getTemperature2mMax()[0], "Temperature should be 25.0");
         
-        assertNotNull(daily.getWeatherCode(), "Weather code list should not be null");
-        assertFalse(daily.getWeatherCode().isEmpty(), "Weather code list should not be empty");
-        assertEquals(0, daily.getWeatherCode().get(0), "Weather code should be 0");
+        assertNotNull(daily.getWeatherCode(), "Weather code column should not be null");
+        assertEquals(1, daily.getWeatherCode().length, "Weather code column should have one day");
+        assertEquals(0, daily.getWeatherCode()[0], "Weather code should be 0");
     }
 }
@@ -0,0 +1,55 @@
+package com.example.sunrisesunsetforecast.service.impl;
+
+import com.example.sunrisesunsetforecast.service.SunTimesCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NoaaSunTimesCalculatorTest {
+
+    // Published almanac times are rounded to the minute, so allow the rounding on top of the one-minute target
+    private static final long TOLERANCE_SECONDS = 90;
+
+    private final NoaaSunTimesCalculator calculator = new NoaaSunTimesCalculator();
+
+    @Test
+    void sunTimes_ShouldMatchAlmanac_ForLondonMidsummer() {
+        long day = LocalDate.parse("2023-06-21").toEpochDay();
+
+        assertClose("2023-06-21T04:43:00+01:00", calculator.sunriseEpochSecond(51.5074, -0.1278, day));
+        assertClose("2023-06-21T21:21:00+01:00", calculator.sunsetEpochSecond(51.5074, -0.1278, day));
+    }
+
+    @Test
+    void sunTimes_ShouldMatchAlmanac_ForSydneySummerSolstice() {
+        long day = LocalDate.parse("2023-12-21").toEpochDay();
+
+        assertClose("2023-12-21T05:41:00+11:00", calculator.sunriseEpochSecond(-33.8688, 151.2093, day));
+        assertClose("2023-12-21T20:05:00+11:00", calculator.sunsetEpochSecond(-33.8688, 151.2093, day));
+    }
+
+    @Test
+    void sunTimes_ShouldReturnNoEvent_DuringPolarDay() {
+        long day = LocalDate.parse("2023-06-21").toEpochDay();
+
+        assertEquals(SunTimesCalculator.NO_EVENT, calculator.sunriseEpochSecond(69.6492, 18.9553, day));
+        assertEquals(SunTimesCalculator.NO_EVENT, calculator.sunsetEpochSecond(69.6492, 18.9553, day));
+    }
+
+    @Test
+    void sunTimes_ShouldReturnNoEvent_DuringPolarNight() {
+        long day = LocalDate.parse("2023-12-21").toEpochDay();
+
+        assertEquals(SunTimesCalculator.NO_EVENT, calculator.sunriseEpochSecond(69.6492, 18.9553, day));
+    }
+
+    private static void assertClose(String expected, long actualEpochSecond) {
+        long expectedEpochSecond = OffsetDateTime.parse(expected).toEpochSecond();
+        assertTrue(Math.abs(expectedEpochSecond - actualEpochSecond) <= TOLERANCE_SECONDS,
+                () -> "Expected " + expected + " but was " + Instant.ofEpochSecond(actualEpochSecond));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.sunrisesunsetforecast.service.impl;
+
+import com.example.sunrisesunsetforecast.exception.ExternalServiceException;
+import com.example.sunrisesunsetforecast.service.impl.NominatimRequestScheduler.Priority;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NominatimRequestSchedulerTest {
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final List<Long> sentAt = new CopyOnWriteArrayList<>();
+    private final List<String> rejections = new CopyOnWriteArrayList<>();
+    private NominatimRequestScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void schedule_ShouldSpaceRequests_ByTheConfiguredRate() {
+        scheduler = scheduler(20, 10, Duration.ofSeconds(5));
+
+        List<Mono<String>> requests = List.of(
+                scheduler.schedule(Priority.INTERACTIVE, request("a")),
+                scheduler.schedule(Priority.INTERACTIVE, request("b")),
+                scheduler.schedule(Priority.INTERACTIVE, request("c")));
+        Mono.when(requests).block(Duration.ofSeconds(5));
+
+        assertEquals(List.of("a", "b", "c"), sent);
+        // 20 per second with a burst of one: 50 ms apart, allowing for timer slack
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(sentAt.get(2) - sentAt.get(0)) >= 90);
+    }
+
+    @Test
+    void schedule_ShouldSendInteractiveRequests_BeforeQueuedBackgroundOnes() {
+        scheduler = scheduler(10, 10, Duration.ofSeconds(5));
+
+        Mono<String> first = scheduler.schedule(Priority.BACKGROUND, request("refresh-1")).cache();
+        first.subscribe();
+        Mono<String> second = scheduler.schedule(Priority.BACKGROUND, request("refresh-2")).cache();
+        second.subscribe();
+        Mono<String> interactive = scheduler.schedule(Priority.INTERACTIVE, request("lookup"));
+        Mono.when(first, second, interactive).block(Duration.ofSeconds(5));
+
+        assertEquals(List.of("refresh-1", "lookup", "refresh-2"), sent);
+    }
+
+    @Test
+    void schedule_ShouldRejectAtOnce_WhenEstimatedWaitExceedsTheDeadline() {
+        scheduler = scheduler(1, 10, Duration.ofMillis(1500));
+
+        scheduler.schedule(Priority.INTERACTIVE, request("now")).subscribe();
+        scheduler.schedule(Priority.INTERACTIVE, request("in one second")).subscribe();
+        long start = System.nanoTime();
+        ExternalServiceException rejected = assertThrows(ExternalServiceException.class,
+                () -> scheduler.schedule(Priority.INTERACTIVE, request("in two seconds")).block());
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+        assertTrue(rejected.getMessage().contains("1500 ms"));
+        assertEquals(List.of("deadline"), rejections);
+        assertFalse(sent.contains("in two seconds"));
+    }
+
+    @Test
+    void schedule_ShouldReject_WhenQueueIsFull() {
+        scheduler = scheduler(1, 1, Duration.ofSeconds(30));
+
+        scheduler.schedule(Priority.INTERACTIVE, request("now")).subscribe();
+        scheduler.schedule(Priority.INTERACTIVE, request("queued")).subscribe();
+
+        assertThrows(ExternalServiceException.class,
+                () -> scheduler.schedule(Priority.INTERACTIVE, request("overflow")).block());
+        assertEquals(List.of("queue_full"), rejections);
+    }
+
+    private NominatimRequestScheduler scheduler(double permitsPerSecond, int maxQueued, Duration interactiveMaxWait) {
+        return new NominatimRequestScheduler(permitsPerSecond, 1, maxQueued,
+                interactiveMaxWait, Duration.ofMinutes(1), rejections::add);
+    }
+
+    private Mono<String> request(String name) {
+        return Mono.fromCallable(() -> {
+            sentAt.add(System.nanoTime());
+            sent.add(name);
+            return name;
+        });
+    }
+}
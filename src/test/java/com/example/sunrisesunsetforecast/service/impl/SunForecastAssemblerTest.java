@@ -0,0 +1,43 @@
+package com.example.sunrisesunsetforecast.service.impl;
+
+import com.example.sunrisesunsetforecast.client.dto.OpenMeteoResponse;
+import com.example.sunrisesunsetforecast.dto.SunForecastResponse;
+import com.example.sunrisesunsetforecast.model.Coordinates;
+import com.example.sunrisesunsetforecast.service.ForecastDescriptionService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class SunForecastAssemblerTest {
+
+    private static final Coordinates BERLIN = new Coordinates(52.52, 13.405);
+
+    private final SunForecastAssembler assembler =
+            new SunForecastAssembler(new NoaaSunTimesCalculator(), mock(ForecastDescriptionService.class));
+
+    @Test
+    void assemble_ShouldUseTheOffsetOfTheForecastDate_AcrossADaylightSavingChange() {
+        // Fetched on the Saturday in winter time, forecasting the Sunday in summer time
+        OpenMeteoResponse forecast = new OpenMeteoResponse();
+        forecast.setTimezone("Europe/Berlin");
+        forecast.setUtcOffsetSeconds(3600);
+
+        SunForecastResponse response = assembler.assemble("Berlin", BERLIN, forecast, LocalDate.of(2024, 3, 31));
+
+        assertEquals(ZoneOffset.ofHours(2), response.getSunrise().getOffset());
+        assertEquals(ZoneOffset.ofHours(2), response.getSunset().getOffset());
+        assertFalse(response.isTemplateMessage());
+    }
+
+    @Test
+    void assemble_ShouldGiveTimesInUtc_AndFlagResponse_WithoutWeatherData() {
+        SunForecastResponse response = assembler.assemble("Berlin", BERLIN, null, LocalDate.of(2024, 3, 31));
+
+        assertEquals(ZoneOffset.UTC, response.getSunrise().getOffset());
+        assertTrue(response.isTemplateMessage());
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.sunrisesunsetforecast.service.impl;
 
+import com.example.sunrisesunsetforecast.cache.CacheRefreshRegistry;
+import com.example.sunrisesunsetforecast.cache.SingleFlight;
 import com.example.sunrisesunsetforecast.client.OpenMeteoClient;
 import com.example.sunrisesunsetforecast.client.dto.OpenMeteoResponse;
 import com.example.sunrisesunsetforecast.dto.SunForecastResponse;
@@ -7,6 +9,10 @@ import com.example.sunrisesunsetforecast.exception.ExternalServiceException;
 import com.example.sunrisesunsetforecast.model.Coordinates;
 import com.example.sunrisesunsetforecast.service.ForecastDescriptionService;
 import com.example.sunrisesunsetforecast.service.GeocodingService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -23,11 +29,7 @@ import java.time.LocalTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
 import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -49,18 +51,25 @@ class SunForecastServiceImplTest {
 
     private SunForecastServiceImpl sunForecastService;
     private CacheManager cacheManager;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
         // Create a simple cache manager for testing
         cacheManager = new ConcurrentMapCacheManager("sunForecast", "openMeteoForecast", "cityCoordinates");
+        meterRegistry = new SimpleMeterRegistry();
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
         
         // Initialize the service with all required dependencies
         sunForecastService = new SunForecastServiceImpl(
             openMeteoClient, 
-            forecastDescriptionService, 
             cacheManager,
-            geocodingService
+            geocodingService,
+            new SunForecastAssembler(new NoaaSunTimesCalculator(), forecastDescriptionService),
+            new SingleFlight(meterRegistry),
+            new CacheRefreshRegistry(),
+            new ForecastStageTimers(observationRegistry)
         );
         
         // Clear cache before each test
@@ -75,33 +84,13 @@ class SunForecastServiceImplTest {
         // Create a daily forecast with tomorrow's date
         OpenMeteoResponse.Daily daily = new OpenMeteoResponse.Daily();
         LocalDate tomorrow = LocalDate.now().plusDays(1);
-        String tomorrowStr = tomorrow.toString();
         
-        // Set all required fields with valid data
-        List<String> timeList = new ArrayList<>();
-        timeList.add(tomorrowStr);
-        daily.setTime(timeList);
-        
-        // Format times as "yyyy-MM-dd'T'HH:mm" (without timezone)
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
-        
-        List<String> sunriseTimes = new ArrayList<>();
-        String sunriseTime = tomorrow.atTime(6, 0).format(formatter);
-        sunriseTimes.add(sunriseTime);
-        daily.setSunriseTimes(sunriseTimes);
-        
-        List<String> sunsetTimes = new ArrayList<>();
-        String sunsetTime = tomorrow.atTime(18, 0).format(formatter);
-        sunsetTimes.add(sunsetTime);
-        daily.setSunsetTimes(sunsetTimes);
-        
-        List<Double> temperatures = new ArrayList<>();
-        temperatures.add(25.0);
-        daily.setTemperature2mMax(temperatures);
-        
-        List<Integer> weatherCodes = new ArrayList<>();
-        weatherCodes.add(0);
-        daily.setWeatherCode(weatherCodes);
+        // Set all required fields with valid data; times are local wall-clock epoch seconds
+        daily.setTime(new long[]{tomorrow.atStartOfDay().toEpochSecond(ZoneOffset.UTC)});
+        daily.setSunriseTimes(new long[]{tomorrow.atTime(6, 0).toEpochSecond(ZoneOffset.UTC)});
+        daily.setSunsetTimes(new long[]{tomorrow.atTime(18, 0).toEpochSecond(ZoneOffset.UTC)});
+        daily.setTemperature2mMax(new double[]{25.0});
+        daily.setWeatherCode(new int[]{0});
         
         // Set the daily object in the response
         mockResponse.setDaily(daily);
@@ -109,6 +98,7 @@ class SunForecastServiceImplTest {
         // Set required location fields
         mockResponse.setLatitude(51.5074);  // London latitude
         mockResponse.setLongitude(-0.1278); // London longitude
+        mockResponse.setTimezone("Europe/London");
         
         return mockResponse;
     }
@@ -129,10 +119,10 @@ class SunForecastServiceImplTest {
         when(openMeteoClient.getSunForecast(city)).thenReturn(mockResponse);
         
         // Mock the forecast description service
-        when(forecastDescriptionService.generateForecastDescription(
+        when(forecastDescriptionService.describeForecast(
             anyString(), any(LocalDate.class), any(LocalTime.class), 
             any(LocalTime.class), anyDouble(), anyString()))
-            .thenReturn("Test description");
+            .thenReturn(new ForecastDescriptionService.ForecastDescription("Test description", false));
         
         // Act
         SunForecastResponse result = sunForecastService.getSunForecast(city);
@@ -146,15 +136,15 @@ class SunForecastServiceImplTest {
         // Verify interactions
         verify(geocodingService, times(1)).getCoordinates(city);
         verify(openMeteoClient, times(1)).getSunForecast(city);
-        verify(forecastDescriptionService, times(1)).generateForecastDescription(
+        verify(forecastDescriptionService, times(1)).describeForecast(
             anyString(), any(LocalDate.class), any(LocalTime.class), 
             any(LocalTime.class), anyDouble(), anyString());
     }
 
     @Test
-    void getSunForecast_ShouldThrowException_WhenResponseIsNull() {
+    void getSunForecast_ShouldUseComputedSunTimes_WhenResponseIsNull() {
         // Arrange
-        String city = "InvalidCity";
+        String city = "London";
         
         // Mock the geocoding service
         Coordinates coords = new Coordinates(51.5074, -0.1278);
@@ -162,11 +152,20 @@ class SunForecastServiceImplTest {
         
         // Mock the client to return null
         when(openMeteoClient.getSunForecast(city)).thenReturn(null);
+        
+        when(forecastDescriptionService.describeForecast(
+            anyString(), any(LocalDate.class), any(LocalTime.class), 
+            any(LocalTime.class), anyDouble(), anyString()))
+            .thenReturn(new ForecastDescriptionService.ForecastDescription("Test description", false));
 
-        // Act & Assert
-        assertThrows(ExternalServiceException.class, () -> 
-            sunForecastService.getSunForecast(city)
-        );
+        // Act
+        SunForecastResponse result = sunForecastService.getSunForecast(city);
+        
+        // Assert
+        assertNotNull(result.getSunrise(), "Sunrise should be computed without weather data");
+        assertNotNull(result.getSunset(), "Sunset should be computed without weather data");
+        assertTrue(result.getSunrise().isBefore(result.getSunset()), "Sunrise should be before sunset");
+        assertNull(result.getTemperature(), "Temperature should be absent without weather data");
         
         // Verify interactions
         verify(geocodingService, times(1)).getCoordinates(city);
@@ -174,19 +173,90 @@ class SunForecastServiceImplTest {
     }
 
     @Test
-    void getSunForecast_ShouldThrowException_WhenDailyDataIsNull() {
+    void getSunForecast_ShouldUseComputedSunTimes_WhenOpenMeteoFails() {
         // Arrange
-        String city = "NoDataCity";
+        String city = "London";
         
-        // Mock the geocoding service
         Coordinates coords = new Coordinates(51.5074, -0.1278);
         when(geocodingService.getCoordinates(city)).thenReturn(coords);
+        when(openMeteoClient.getSunForecast(city)).thenThrow(new ExternalServiceException("Open-Meteo is down"));
+        when(forecastDescriptionService.describeForecast(
+            anyString(), any(LocalDate.class), any(LocalTime.class), 
+            any(LocalTime.class), anyDouble(), anyString()))
+            .thenReturn(new ForecastDescriptionService.ForecastDescription("Test description", false));
+
+        // Act
+        SunForecastResponse result = sunForecastService.getSunForecast(city);
         
-        // Create a response with null daily data
-        OpenMeteoResponse mockResponse = new OpenMeteoResponse();
-        mockResponse.setLatitude(51.5074);
-        mockResponse.setLongitude(-0.1278);
+        // Assert
+        assertNotNull(result.getSunrise(), "Sunrise should be computed without weather data");
+        assertNotNull(result.getSunset(), "Sunset should be computed without weather data");
+        assertEquals("Test description", result.getEnhancedMessage());
+        assertEquals(1, stageTimer("weather", "failure").count());
+        assertEquals(1, stageTimer("geocoding", "success").count());
+        assertEquals(1, stageTimer("description", "success").count());
+    }
+
+    private Timer stageTimer(String stage, String outcome) {
+        return meterRegistry.get(ForecastStageTimers.STAGE_METRIC).tag("stage", stage).tag("outcome", outcome).timer();
+    }
+
+    @Test
+    void getSunForecast_ShouldUseWeatherForForecastDate_WhenDailyHasSeveralDays() {
+        // Arrange
+        String city = "London";
+        Coordinates coords = new Coordinates(51.5074, -0.1278);
+        when(geocodingService.getCoordinates(city)).thenReturn(coords);
+        
+        OpenMeteoResponse mockResponse = createMockResponse();
+        LocalDate today = LocalDate.now();
+        OpenMeteoResponse.Daily daily = mockResponse.getDaily();
+        daily.setTime(new long[]{
+            today.atStartOfDay().toEpochSecond(ZoneOffset.UTC),
+            today.plusDays(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC)});
+        daily.setTemperature2mMax(new double[]{10.0, 25.0});
+        daily.setWeatherCode(new int[]{61, 0});
+        mockResponse.setTimezone("Africa/Lagos"); // UTC+1 all year
         when(openMeteoClient.getSunForecast(city)).thenReturn(mockResponse);
+        
+        when(forecastDescriptionService.describeForecast(
+            anyString(), any(LocalDate.class), any(LocalTime.class), 
+            any(LocalTime.class), anyDouble(), anyString()))
+            .thenReturn(new ForecastDescriptionService.ForecastDescription("Test description", false));
+
+        // Act
+        SunForecastResponse result = sunForecastService.getSunForecast(city);
+        
+        // Assert
+        assertEquals(25.0, result.getTemperature());
+        assertEquals("Clear", result.getWeatherCondition());
+        assertEquals(ZoneOffset.ofHours(1), result.getSunrise().getOffset());
+    }
+
+    @Test
+    void getSunForecast_ShouldGiveTimesInUtc_AndFlagResponse_WhenTimeZoneIsUnknown() {
+        String city = "London";
+        when(geocodingService.getCoordinates(city)).thenReturn(new Coordinates(51.5074, -0.1278));
+        OpenMeteoResponse mockResponse = createMockResponse();
+        mockResponse.setTimezone(null);
+        mockResponse.setUtcOffsetSeconds(3600);
+        when(openMeteoClient.getSunForecast(city)).thenReturn(mockResponse);
+        when(forecastDescriptionService.describeForecast(
+            anyString(), any(LocalDate.class), any(LocalTime.class),
+            any(LocalTime.class), anyDouble(), anyString()))
+            .thenReturn(new ForecastDescriptionService.ForecastDescription("Test description", false));
+
+        SunForecastResponse result = sunForecastService.getSunForecast(city);
+
+        assertEquals(ZoneOffset.UTC, result.getSunrise().getOffset());
+        assertTrue(result.isTemplateMessage());
+    }
+
+    @Test
+    void getSunForecast_ShouldThrowException_WhenCoordinatesAreNull() {
+        // Arrange
+        String city = "NoDataCity";
+        when(geocodingService.getCoordinates(city)).thenReturn(null);
 
         // Act & Assert
         assertThrows(ExternalServiceException.class, () -> 
@@ -195,6 +265,6 @@ class SunForecastServiceImplTest {
         
         // Verify interactions
         verify(geocodingService, times(1)).getCoordinates(city);
-        verify(openMeteoClient, times(1)).getSunForecast(city);
+        verifyNoInteractions(openMeteoClient);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,153 @@
+package com.example.sunrisesunsetforecast.tracing;
+
+import com.example.sunrisesunsetforecast.cache.TracedCache;
+import com.example.sunrisesunsetforecast.client.OpenMeteoClient;
+import com.example.sunrisesunsetforecast.dto.SunForecastResponse;
+import com.example.sunrisesunsetforecast.model.Coordinates;
+import com.example.sunrisesunsetforecast.service.ReactiveGeocodingService;
+import com.example.sunrisesunsetforecast.service.impl.ForecastStageTimers;
+import com.example.sunrisesunsetforecast.service.impl.ForecastStageTimers.Stage;
+import com.example.sunrisesunsetforecast.service.impl.ReactiveSunForecastServiceImpl;
+import com.example.sunrisesunsetforecast.service.impl.SunForecastAssembler;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ServerTimingHandlerTest {
+
+    private final ObservationRegistry registry = ObservationRegistry.create();
+    private final Queue<Observation.Context> started = new ConcurrentLinkedQueue<>();
+    private final Queue<Observation.Context> stopped = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void setUp() {
+        registry.observationConfig()
+                .observationHandler(new ServerTimingHandler())
+                .observationHandler(new ObservationHandler<>() {
+                    @Override
+                    public void onStart(Observation.Context context) {
+                        started.add(context);
+                    }
+
+                    @Override
+                    public void onStop(Observation.Context context) {
+                        stopped.add(context);
+                    }
+
+                    @Override
+                    public boolean supportsContext(Observation.Context context) {
+                        return true;
+                    }
+                });
+    }
+
+    @Test
+    void doFilter_ShouldNestTheObservationsOfTheRequest() throws Exception {
+        ForecastStageTimers stageTimers = new ForecastStageTimers(registry);
+        Cache cache = new TracedCache(new ConcurrentMapCache("sunForecast"), registry);
+
+        new ServerHttpObservationFilter(registry).doFilter(new MockHttpServletRequest("GET", "/api/sun-forecast"),
+                new MockHttpServletResponse(), (req, res) -> {
+                    cache.get("london", () -> stageTimers.record(Stage.GEOCODING, () -> "51.5,-0.1"));
+                    cache.get("london", () -> "unused");
+                    stageTimers.record(Stage.WEATHER, Mono.just("sunny")).contextCapture().block();
+                });
+
+        assertEquals(5, stopped.size());
+        Observation.Context request = started.stream()
+                .filter(ServerRequestObservationContext.class::isInstance).findFirst().orElseThrow();
+        List<Observation.Context> lookups = named("cache");
+        assertEquals("miss", lookups.get(0).getLowCardinalityKeyValue("result").getValue());
+        assertEquals("hit", lookups.get(1).getLowCardinalityKeyValue("result").getValue());
+        assertEquals("sunForecast", lookups.get(0).getLowCardinalityKeyValue("cache").getValue());
+        assertTrue(lookups.stream().allMatch(lookup -> parent(lookup) == request));
+        // The value loaded on a miss is observed within the lookup
+        assertSame(lookups.get(0), parent(named("geocoding").get(0)));
+        assertSame(request, parent(named("weather").get(0)));
+        assertNull(registry.getCurrentObservation());
+    }
+
+    @Test
+    void doFilter_ShouldObserveTheStagesOfAReactiveCacheMiss_BeforeTheForecastIsReturned() throws Exception {
+        SunForecastResponse forecast = SunForecastResponse.builder().city("London").build();
+        ReactiveGeocodingService geocodingService = city -> Mono.just(new Coordinates(51.5074, -0.1278));
+        OpenMeteoClient openMeteoClient = mock(OpenMeteoClient.class);
+        when(openMeteoClient.fetchForecast(any())).thenReturn(Mono.empty());
+        SunForecastAssembler assembler = mock(SunForecastAssembler.class);
+        when(assembler.assemble(eq("London"), any(), isNull(), any())).thenReturn(forecast);
+        when(assembler.describe(eq(forecast), any())).thenReturn(forecast);
+        ReactiveSunForecastServiceImpl service = new ReactiveSunForecastServiceImpl(geocodingService, openMeteoClient,
+                assembler, new ConcurrentMapCacheManager("cityCoordinates", "sunForecast"), Schedulers.boundedElastic(),
+                new ForecastStageTimers(registry));
+        AtomicReference<List<Observation.Context>> stoppedOnReturn = new AtomicReference<>();
+
+        new ServerHttpObservationFilter(registry).doFilter(new MockHttpServletRequest("GET", "/api/sun-forecast/async"),
+                new MockHttpServletResponse(), (req, res) -> {
+                    service.getSunForecast("London").block();
+                    stoppedOnReturn.set(List.copyOf(stopped));
+                });
+
+        Observation.Context request = started.stream()
+                .filter(ServerRequestObservationContext.class::isInstance).findFirst().orElseThrow();
+        for (String stage : List.of("geocoding", "weather", "assembly", "description")) {
+            Observation.Context context = named(stage).get(0);
+            assertSame(request, parent(context), stage);
+            assertTrue(stoppedOnReturn.get().contains(context), stage);
+        }
+    }
+
+    @Test
+    void serverTiming_ShouldSumTheObservationsByName_InStartOrder() throws Exception {
+        ForecastStageTimers stageTimers = new ForecastStageTimers(registry);
+        Cache cache = new TracedCache(new ConcurrentMapCache("sunForecast"), registry);
+        AtomicReference<String> header = new AtomicReference<>();
+
+        new ServerHttpObservationFilter(registry).doFilter(new MockHttpServletRequest("GET", "/api/sun-forecast"),
+                new MockHttpServletResponse(), (req, res) -> {
+                    stageTimers.record(Stage.GEOCODING, () -> null);
+                    cache.get("london", () -> "51.5,-0.1");
+                    stageTimers.record(Stage.GEOCODING, () -> null);
+                    ServerHttpResponse response = new ServletServerHttpResponse((MockHttpServletResponse) res);
+                    new ServerTimingAdvice().beforeBodyWrite(null, null, null, null,
+                            new ServletServerHttpRequest((MockHttpServletRequest) req), response);
+                    header.set(response.getHeaders().getFirst(ServerTimingAdvice.SERVER_TIMING_HEADER));
+                });
+
+        assertTrue(header.get().matches(
+                "geocoding;dur=\\d+\\.\\d, cache;desc=\"sunForecast miss\";dur=\\d+\\.\\d, total;dur=\\d+\\.\\d"), header.get());
+    }
+
+    private List<Observation.Context> named(String contextualName) {
+        return started.stream().filter(context -> contextualName.equals(context.getContextualName())).toList();
+    }
+
+    private static Observation.ContextView parent(Observation.Context context) {
+        return context.getParentObservation().getContextView();
+    }
+}